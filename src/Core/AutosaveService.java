@@ -0,0 +1,259 @@
+package Core;
+
+import Core.Storage.ChunkStore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the game in the background while it is being played.
+ * <p>
+ * At a tick boundary the game thread takes a snapshot: it encodes the save file and the chunks
+ * that changed since the last snapshot, which only takes a few small records. Everything else
+ * happens on a writer thread. Most snapshots are appended to a journal next to the save file as
+ * one small entry. Every Constants.AUTOSAVE_JOURNAL_LENGTH snapshots, a checkpoint writes every
+ * chunk in the journal to its region file, replaces the save file with an atomic rename and
+ * empties the journal.
+ * <p>
+ * Region records are overwritten in place, so a checkpoint always journals its chunks and save
+ * first; a crash while the regions are being written is repaired by replaying the journal. The
+ * first checkpoint of a new world also resets the region files of whatever game was saved before,
+ * but only after a reset entry holding the whole new world has replaced the journal, so the old
+ * save stays loadable until the new one is committed.
+ * <p>
+ * Every journal entry has a checksum, so an entry that was cut off by a crash is ignored. The
+ * journal is replayed by recover before a save is loaded.
+ */
+public class AutosaveService {
+    private final File saveFile;
+    private final ExecutorService writer = newWriter();
+
+    /** A journal entry with the chunks that changed since the entry before it. */
+    private static final byte UPDATE = 0;
+    /** A journal entry with every chunk of a new world, replacing all the saved regions. */
+    private static final byte RESET = 1;
+
+    /**
+     * The latest record of every chunk written to the journal since the last checkpoint. Only
+     * used by the writer thread.
+     */
+    private final Map<Long, byte[]> journaledChunks = new HashMap<>();
+
+    private int ticksSinceSnapshot = 0;
+    private int journalLength = 0;
+    private boolean hasCheckpoint = false;
+
+    public AutosaveService(File saveFile) {
+        this.saveFile = saveFile;
+    }
+
+    /**
+     * Makes the thread that writes the saves. Every game has its own, so it stops when it has
+     * been idle for a while instead of staying around for the rest of the JVM.
+     */
+    private static ExecutorService newWriter() {
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.allowCoreThreadTimeOut(true);
+        return writer;
+    }
+
+    /**
+     * Called by the game loop at the end of every tick. Takes a snapshot every
+     * Constants.AUTOSAVE_SECONDS seconds. The first snapshot of a session is a checkpoint.
+     */
+    public void tick(GameStateManager manager) {
+        if (++ticksSinceSnapshot < Constants.AUTOSAVE_SECONDS * Constants.TICKS_PER_SECOND) {
+            return;
+        }
+        ticksSinceSnapshot = 0;
+        snapshot(manager, !hasCheckpoint || journalLength >= Constants.AUTOSAVE_JOURNAL_LENGTH);
+    }
+
+    /**
+     * Takes a checkpoint and waits for it to be written, for when the game is quitting.
+     */
+    public void saveNow(GameStateManager manager) {
+        Future<?> checkpoint = snapshot(manager, true);
+        try {
+            checkpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException(e.getCause());
+        }
+    }
+
+    private Future<?> snapshot(GameStateManager manager, boolean isCheckpoint) {
+        WorldEngine worldEngine = manager.getWorldEngine();
+        File chunkDirectory = Save.chunkDirectory(saveFile);
+        boolean isReset = worldEngine.isNewSave();
+        ChunkStore store = worldEngine.getChunkStore(chunkDirectory);
+        Map<Long, byte[]> chunks = worldEngine.snapshotDirtyChunks(chunkDirectory);
+        byte[] save = new Save(manager, manager.getSession().getServices()).encode();
+        if (isCheckpoint || isReset) {
+            hasCheckpoint = true;
+            journalLength = 0;
+            return writer.submit(() -> {
+                writeCheckpoint(store, chunks, save, isReset);
+                return null;
+            });
+        }
+        journalLength++;
+        return writer.submit(() -> {
+            appendToJournal(chunks, save);
+            return null;
+        });
+    }
+
+    /**
+     * Journals the chunks and save first, so the region records can be overwritten in place and
+     * the save replaced without a crash in between losing anything.
+     *
+     * @param isReset whether the store still holds another game's regions that have to go
+     */
+    private void writeCheckpoint(ChunkStore store, Map<Long, byte[]> chunks, byte[] save,
+                                 boolean isReset) throws IOException {
+        if (isReset) {
+            journaledChunks.putAll(chunks);
+            Save.writeAtomically(Save.journalFile(saveFile),
+                    journalEntry(RESET, journaledChunks, save));
+            store.clear();
+        } else {
+            appendToJournal(chunks, save);
+        }
+        journaledChunks.forEach(store::write);
+        store.flush();
+        Save.writeAtomically(saveFile, save);
+        journaledChunks.clear();
+        File journal = Save.journalFile(saveFile);
+        if (journal.exists() && !journal.delete()) {
+            throw new IOException("Cannot delete " + journal);
+        }
+    }
+
+    private void appendToJournal(Map<Long, byte[]> chunks, byte[] save) throws IOException {
+        journaledChunks.putAll(chunks);
+        try (FileOutputStream file = new FileOutputStream(Save.journalFile(saveFile), true)) {
+            file.write(journalEntry(UPDATE, chunks, save));
+            file.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Encodes one journal entry: its length and checksum, followed by its kind, its chunks and
+     * the save.
+     */
+    private static byte[] journalEntry(byte kind, Map<Long, byte[]> chunks, byte[] save)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream entry = new DataOutputStream(bytes);
+        entry.writeByte(kind);
+        entry.writeInt(chunks.size());
+        for (Map.Entry<Long, byte[]> chunk : chunks.entrySet()) {
+            entry.writeLong(chunk.getKey());
+            entry.writeInt(chunk.getValue().length);
+            entry.write(chunk.getValue());
+        }
+        entry.writeInt(save.length);
+        entry.write(save);
+        byte[] body = bytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(body.length + 12);
+        DataOutputStream out = new DataOutputStream(framed);
+        out.writeInt(body.length);
+        out.writeLong(checksum.getValue());
+        out.write(body);
+        return framed.toByteArray();
+    }
+
+    /**
+     * Applies the journal of a save, if it has one, so the save holds the latest autosave. Stops
+     * at the first entry that is incomplete or damaged. The journal is only deleted once
+     * everything in it has been written, so a crash in here replays it again next time.
+     *
+     * @param saveFile the save file
+     */
+    public static void recover(File saveFile) throws IOException {
+        File journal = Save.journalFile(saveFile);
+        if (!journal.exists()) {
+            return;
+        }
+        Map<Long, byte[]> chunks = new HashMap<>();
+        byte[] save = null;
+        boolean isReset = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(journal)))) {
+            while (true) {
+                byte[] body;
+                long expected;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > journal.length()) {
+                        break;
+                    }
+                    body = new byte[length];
+                    expected = in.readLong();
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 checksum = new CRC32();
+                checksum.update(body);
+                if (checksum.getValue() != expected) {
+                    break;
+                }
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(body));
+                if (entry.readByte() == RESET) {
+                    chunks.clear();
+                    isReset = true;
+                }
+                int chunkCount = entry.readInt();
+                for (int i = 0; i < chunkCount; i++) {
+                    long key = entry.readLong();
+                    byte[] record = new byte[entry.readInt()];
+                    entry.readFully(record);
+                    chunks.put(key, record);
+                }
+                save = new byte[entry.readInt()];
+                entry.readFully(save);
+            }
+        }
+        if (save != null) {
+            File chunkDirectory = Save.chunkDirectory(saveFile);
+            try (ChunkStore store = isReset ? ChunkStore.create(chunkDirectory)
+                    : ChunkStore.open(chunkDirectory)) {
+                chunks.forEach(store::write);
+                store.flush();
+            }
+            Save.writeAtomically(saveFile, save);
+        }
+        if (!journal.delete()) {
+            throw new IOException("Cannot delete " + journal);
+        }
+    }
+}
@@ -5,32 +5,119 @@ import Core.DataStructures.Direction;
 import Core.DataStructures.Point;
 import Core.DataStructures.Room;
 import Core.Entities.*;
+import Core.Lighting.LightMap;
+import Core.Pathfinding.FlowField;
 import TileEngine.TETile;
-import TileEngine.Tileset;
+import TileEngine.TileGrid;
+import TileEngine.TileProperties;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
-/**
- * @param map           2d array that represents the world.
- */
-public record Chunk(TETile[][] map, ChunkData getChunkData, ArrayList<Room> rooms) implements Serializable {
+public class Chunk implements Serializable {
+    /**
+     * Compact grid that holds the tiles of the world.
+     */
+    private final TileGrid map;
+    private final ChunkData chunkData;
+    private final ArrayList<Room> rooms;
+    /**
+     * The game the chunk belongs to.
+     */
+    private final transient GameSession session;
+
+    /**
+     * Distances to the player shared by all the monsters in the chunk. Made when first needed.
+     */
+    private transient FlowField flowField;
+    /**
+     * Projectiles flying through the chunk, moved by the game loop.
+     */
+    private final transient List<Projectile> projectiles = new ArrayList<>();
+    /**
+     * Which tiles block light, set at x * height + y. Made when first needed and kept up to date
+     * by setTile.
+     */
+    private transient BitSet lightBlockers;
+    /**
+     * The light of the lamps in the chunk. Made when first needed.
+     */
+    private transient LightMap lightMap;
+    /**
+     * What the player can see in the chunk. Made when first needed.
+     */
+    private transient PlayerVision playerVision;
+    /**
+     * Entities waiting for placeEntities, and whether it has run.
+     */
+    private transient List<Interactable> newInteractables;
+    private transient List<Monster> newMobs;
+    private transient boolean isPlaced;
+
+    /**
+     * @param newInteractables the interactables made for the chunk if it has never been
+     *                         populated, added to its ChunkData by placeEntities
+     * @param newMobs          the monsters made for the chunk if it has never been populated
+     */
+    public Chunk(GameSession session, TETile[][] map, ChunkData chunkData,
+                 ArrayList<Room> rooms, List<Interactable> newInteractables,
+                 List<Monster> newMobs) {
+        this(session, TileGrid.of(map), chunkData, rooms, newInteractables, newMobs);
+    }
 
-    public Chunk(TETile[][] map, ChunkData getChunkData, ArrayList<Room> rooms) {
+    public Chunk(GameSession session, TileGrid map, ChunkData chunkData,
+                 ArrayList<Room> rooms, List<Interactable> newInteractables,
+                 List<Monster> newMobs) {
+        this.session = session;
         this.map = map;
-        this.getChunkData = getChunkData;
+        this.chunkData = chunkData;
         this.rooms = rooms;
-        System.out.println(Arrays.toString(Thread.currentThread().getStackTrace()));
+        this.newInteractables = newInteractables;
+        this.newMobs = newMobs;
+    }
+
+    /**
+     * Puts the entities of the chunk into it. Chunks can be generated on worker threads, but
+     * their entities are shared with the ChunkData, so this is only called on the game thread,
+     * once the chunk is actually used. Does nothing after the first call.
+     */
+    void placeEntities() {
+        if (isPlaced) {
+            return;
+        }
+        isPlaced = true;
+        if (!chunkData.isPopulated()) {
+            chunkData.getInteractables().addAll(newInteractables);
+            chunkData.getMobs().addAll(newMobs);
+            chunkData.setPopulated(true);
+        }
+        newInteractables = null;
+        newMobs = null;
         //init all interactables - includes things like assigning them to this chunk
-        for (Interactable i : getChunkData.getInteractables()) {
+        for (Interactable i : chunkData.getInteractables()) {
             i.init(this);
         }
-        for (Monster m : getChunkData.getMobs()) {
+        for (Monster m : chunkData.getMobs()) {
             m.init(this);
         }
+        getLamps().forEach(Lamp::restoreLight);
+    }
+
+    /**
+     * Lets every entity in the chunk forget about it, so the tiles of the chunk can be garbage
+     * collected once the chunk is dropped. The entities stay in the ChunkData and are placed again
+     * when the chunk is regenerated.
+     */
+    public void unload() {
+        for (Interactable i : chunkData.getInteractables()) {
+            i.unload();
+        }
+        for (Monster m : chunkData.getMobs()) {
+            m.unload();
+        }
     }
 
     /**
@@ -39,12 +126,38 @@ public record Chunk(TETile[][] map, ChunkData getChunkData, ArrayList<Room> room
      * @param p    the location to be changed
      * @param tile the tile to change the location to
      */
-    public void setTileCopy(Point p, TETile tile) {
-        map[p.getX()][p.getY()] = tile.copyOf();
+    public void setTile(Point p, TETile tile) {
+        int oldFlags = map.getFlags(p.getX(), p.getY());
+        map.set(p.getX(), p.getY(), tile);
+        if (((oldFlags ^ map.getFlags(p.getX(), p.getY())) & TileProperties.BLOCKS_LIGHT) != 0) {
+            if (lightBlockers != null) {
+                lightBlockers.set(p.getX() * getHeight() + p.getY(), isBlocking(p));
+            }
+            if (lightMap != null) {
+                lightMap.blockerChanged(p.getX(), p.getY());
+            }
+            if (playerVision != null) {
+                playerVision.invalidate();
+            }
+        }
+        if (flowField != null
+                && ((oldFlags ^ map.getFlags(p.getX(), p.getY())) & TileProperties.PATHABLE) != 0) {
+            flowField.invalidate();
+        }
+    }
+
+    /**
+     * Changes how lit the given point is without changing its tile.
+     *
+     * @param p     the location to be changed
+     * @param shade the new shade of the location, 0 being unlit
+     */
+    public void setShade(Point p, int shade) {
+        map.setShade(p.getX(), p.getY(), shade);
     }
 
-    public void setTile(Point p, TETile tile) {
-        map[p.getX()][p.getY()] = tile;
+    public int getShade(Point p) {
+        return map.getShade(p.getX(), p.getY());
     }
 
     /**
@@ -54,11 +167,11 @@ public record Chunk(TETile[][] map, ChunkData getChunkData, ArrayList<Room> room
      * @return true/false if the value is within bounds of the map
      */
     public boolean isInBounds(Point p) {
-        return p.getX() < map.length && p.getX() >= 0 && p.getY() < map[0].length && p.getY() >= 0;
+        return p.getX() < map.getWidth() && p.getX() >= 0 && p.getY() < map.getHeight() && p.getY() >= 0;
     }
 
     public boolean isInBounds(char c) {
-        Point currLoc = GameServices.getInstance().getPlayer().getCurrentLocation();
+        Point currLoc = session.getPlayer().getCurrentLocation();
         if (c == 'w') {
            return isInBounds( currLoc.addDirection(Direction.UP, 1));
         } else if (c == 'a') {
@@ -72,44 +185,166 @@ public record Chunk(TETile[][] map, ChunkData getChunkData, ArrayList<Room> room
     }
 
     public boolean isBlocking(Point p) {
-        TETile t = getTile(p);
-        return t.equals(getChunkData.getTileMap().get("wall")) || t.equals(Tileset.LOCKED_DOOR);
+        return hasFlag(p, TileProperties.BLOCKS_LIGHT);
     }
 
     /**
-     * Gets the tile at the given point
+     * @return which tiles block light, set at x * height + y. Must not be modified.
+     */
+    public BitSet getLightBlockers() {
+        if (lightBlockers == null) {
+            BitSet blockers = new BitSet(getWidth() * getHeight());
+            for (int x = 0; x < getWidth(); x++) {
+                for (int y = 0; y < getHeight(); y++) {
+                    if ((map.getFlags(x, y) & TileProperties.BLOCKS_LIGHT) != 0) {
+                        blockers.set(x * getHeight() + y);
+                    }
+                }
+            }
+            lightBlockers = blockers;
+        }
+        return lightBlockers;
+    }
+
+    public LightMap getLightMap() {
+        if (lightMap == null) {
+            lightMap = new LightMap(this);
+        }
+        return lightMap;
+    }
+
+    /**
+     * Whether the tile at the given point has the given TileProperties flags.
+     *
+     * @param p    the location to check
+     * @param flag the flags to check for
+     * @return true if the tile has all the flags
+     */
+    public boolean hasFlag(Point p, int flag) {
+        return (map.getFlags(p.getX(), p.getY()) & flag) == flag;
+    }
+
+    /**
+     * Gets the tile at the given point. The tile is shared with other locations, so it should
+     * not be modified.
      *
      * @param p the location to get the tile from
      * @return the tile at the given point
      */
     public TETile getTile(Point p) {
-        return map[p.getX()][p.getY()];
+        return map.get(p.getX(), p.getY());
     }
 
     /**
-     * @return Returns the dungeon
+     * @return Returns a copy of the dungeon as a 2d array
      */
     public TETile[][] getFloorArray() {
-        return this.map;
+        return map.toArray();
+    }
+
+    public int getWidth() {
+        return map.getWidth();
+    }
+
+    public int getHeight() {
+        return map.getHeight();
     }
 
     public ArrayList<Lamp> getLamps() {
-        return getChunkData.getInteractables().stream().filter(element -> element instanceof Lamp)
+        return chunkData.getInteractables().stream().filter(element -> element instanceof Lamp)
                 .map(interactable -> (Lamp) interactable)
                 .collect(Collectors.toCollection(ArrayList<Lamp>::new));
     }
 
     public ArrayList<Key> getKeys() {
-        return getChunkData.getInteractables().stream().filter(element -> element instanceof Key)
+        return chunkData.getInteractables().stream().filter(element -> element instanceof Key)
                 .map(interactable -> (Key) interactable)
                 .collect(Collectors.toCollection(ArrayList<Key>::new));
     }
 
     public Trophy getTrophy() {
-        return (Trophy) getChunkData.getInteractables().stream().filter(element -> element instanceof Trophy).findFirst().get();
+        return (Trophy) chunkData.getInteractables().stream().filter(element -> element instanceof Trophy).findFirst().get();
+    }
+
+    /**
+     * Gets the distances from the tiles around the player to the player, searching again if the
+     * player has moved since the last call. The search only goes as far as the monsters that are
+     * close enough to chase the player.
+     *
+     * @return the flow field toward the player
+     */
+    public FlowField getFlowField() {
+        if (flowField == null) {
+            flowField = new FlowField(getWidth(), getHeight(), Constants.MONSTER_RANGE);
+        }
+        List<Point> mobLocations = new ArrayList<>();
+        for (Monster mob : chunkData.getMobs()) {
+            mobLocations.add(mob.getCurrentLoc());
+        }
+        flowField.update(map, session.getPlayer().getCurrentLocation(), mobLocations);
+        return flowField;
+    }
+
+    public GameSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return whether the chunk is hidden until the player has seen it
+     */
+    public boolean hasFogOfWar() {
+        return Constants.FOG_OF_WAR && chunkData.getType() == ChunkData.ChunkType.DUNGEON;
+    }
+
+    /**
+     * Gets what the player can see, looking again if the player has moved or a tile has started
+     * or stopped blocking light since the last call.
+     */
+    public PlayerVision getPlayerVision() {
+        if (playerVision == null) {
+            playerVision = new PlayerVision(this);
+        }
+        playerVision.update(session.getPlayer().getCurrentLocation());
+        return playerVision;
+    }
+
+    public void addProjectile(Projectile projectile) {
+        projectiles.add(projectile);
+    }
+
+    /**
+     * Moves every projectile one tile, and forgets the ones that have stopped.
+     */
+    public void stepProjectiles() {
+        for (Projectile projectile : new ArrayList<>(projectiles)) {
+            projectile.step(this);
+        }
+        projectiles.removeIf(Projectile::isDone);
+    }
+
+    /**
+     * Takes every projectile off the chunk, for when the player leaves it.
+     */
+    public void clearProjectiles() {
+        for (Projectile projectile : new ArrayList<>(projectiles)) {
+            projectile.remove(this);
+        }
+        projectiles.clear();
+    }
+
+    public List<Projectile> getProjectiles() {
+        return projectiles;
+    }
+
+    public TileGrid map() {
+        return map;
+    }
+
+    public ArrayList<Room> rooms() {
+        return rooms;
     }
 
     public ChunkData getChunkData() {
-        return getChunkData;
+        return chunkData;
     }
 }
@@ -0,0 +1,98 @@
+package Core;
+
+import Core.DataStructures.Point;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates chunks on a pool of worker threads before the player needs them.
+ * <p>
+ * Chunks are keyed by their center. Once a chunk has been requested it is generated at most once
+ * until it is taken or the prefetcher is cleared, so walking back and forth near an edge does not
+ * start the same work again.
+ */
+public class ChunkPrefetcher {
+    private final ExecutorService workers;
+    private final Map<Point, Future<Chunk>> pending = new HashMap<>();
+
+    public ChunkPrefetcher(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "chunk-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        //every game has its own prefetcher, so idle workers stop instead of piling up
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+
+    /**
+     * Starts generating the chunk at the given center, unless it is already being generated.
+     *
+     * @param chunkCenter the center of the chunk
+     * @param generator   makes the chunk. Runs on a worker thread.
+     */
+    public synchronized void prefetch(Point chunkCenter, Callable<Chunk> generator) {
+        if (!pending.containsKey(chunkCenter)) {
+            pending.put(chunkCenter, workers.submit(generator));
+        }
+    }
+
+    /**
+     * Whether the chunk at the given center has been requested and not taken yet.
+     */
+    public synchronized boolean isPending(Point chunkCenter) {
+        return pending.containsKey(chunkCenter);
+    }
+
+    /**
+     * Hands over a chunk that is already generated, so it can be taken later.
+     */
+    public synchronized void offer(Chunk chunk) {
+        pending.put(chunk.getChunkData().getChunkCenter(), CompletableFuture.completedFuture(chunk));
+    }
+
+    /**
+     * Takes the chunk at the given center, waiting for it if it is still being generated.
+     *
+     * @param chunkCenter the center of the chunk
+     * @return the chunk, or null if it was never requested or its generation failed
+     */
+    public Chunk take(Point chunkCenter) {
+        Future<Chunk> future;
+        synchronized (this) {
+            future = pending.remove(chunkCenter);
+        }
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Forgets every chunk that has not been taken. Chunks that are still being generated finish
+     * in the background and are thrown away.
+     */
+    public synchronized void clear() {
+        pending.clear();
+    }
+}
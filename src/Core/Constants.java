@@ -1,8 +1,6 @@
 package Core;
 
 import java.io.File;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class Constants {
     public static final int VIEWPORT_WIDTH = 95;
@@ -16,7 +14,72 @@ public class Constants {
      */
     public static final File SAVE_FILE = new File("save.txt");
 
-    public static ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool();
+    /**
+     * Whether saved games and chunks are gzipped.
+     */
+    public static boolean COMPRESS_SAVES = true;
+
+    /**
+     * How often the game is autosaved while playing with the keyboard, in seconds.
+     */
+    public static int AUTOSAVE_SECONDS = 10;
+
+    /**
+     * How many autosaves are appended to the journal before the next one is a full checkpoint.
+     */
+    public static int AUTOSAVE_JOURNAL_LENGTH = 6;
 
     public static int MONSTER_RANGE = 15;
+
+    /**
+     * How many times a second the game loop runs when playing with the keyboard.
+     */
+    public static int TICKS_PER_SECOND = 30;
+
+    /**
+     * The most frames the render thread draws in a second.
+     */
+    public static int MAX_FRAMES_PER_SECOND = 60;
+
+    /**
+     * How long something that was hit is drawn as hit, in milliseconds.
+     */
+    public static int HIT_FLASH_MILLIS = 100;
+
+    /**
+     * How many tiles a projectile flies every tick when playing with the keyboard.
+     */
+    public static int PROJECTILE_STEPS_PER_TICK = 2;
+
+    /**
+     * The most tiles a monster will look at when searching for a path to the player.
+     */
+    public static int PATHFINDING_BUDGET = 2048;
+
+    /**
+     * How close the player has to be to the edge of a chunk for the chunk past it to start
+     * generating in the background.
+     */
+    public static int PREFETCH_DISTANCE = 20;
+
+    /**
+     * How many threads generate chunks in the background.
+     */
+    public static int PREFETCH_THREADS = 2;
+
+    /**
+     * How many recently visited chunks are kept in memory. Older chunks are regenerated from
+     * their seed when they are visited again.
+     */
+    public static int CHUNK_CACHE_SIZE = 9;
+
+    /**
+     * Whether dungeons are hidden until the player has seen them.
+     */
+    public static boolean FOG_OF_WAR = true;
+
+    /**
+     * How many tiles away the player can see in a dungeon.
+     */
+    public static int PLAYER_SIGHT_RADIUS = 12;
 }
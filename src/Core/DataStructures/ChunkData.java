@@ -1,27 +1,41 @@
 package Core.DataStructures;
 
+import Core.Constants;
 import Core.Entities.Interactable;
 import Core.Entities.Monster;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
+import TileEngine.Tileset;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class ChunkData implements Serializable {
-    private ChunkData northChunkData = null;
-    private ChunkData southChunkData = null;
-    private ChunkData westChunkData = null;
-    private ChunkData eastChunkData = null;
     private Long chunkSeed;
     private Map<String, TETile> tileMap;
     private ChunkType type;
     private Point chunkCenter;
     private List<Interactable> interactables;
     private List<Monster> mobs;
+    /**
+     * Whether the entities of the chunk have been placed. Once they have, regenerating the chunk
+     * from its seed only rebuilds the tiles, and the entities keep their current state.
+     */
+    private boolean isPopulated = false;
+    /**
+     * The tiles the player has seen, set at x * height + y. Not saved.
+     */
+    private transient BitSet explored;
+
     public ChunkData(long chunkSeed, Map<String, TETile> tileMap, ChunkType type,
                      Point chunkCenter) {
         this.chunkSeed = chunkSeed;
@@ -34,39 +48,73 @@ public class ChunkData implements Serializable {
 
     public enum ChunkType {
         DUNGEON,
-        OUTSIDE
-    }
-
-    public ChunkData getNorthChunkData() {
-        return northChunkData;
-    }
-
-    public void setNorthChunkData(ChunkData northChunkData) {
-        this.northChunkData = northChunkData;
-    }
-
-    public ChunkData getSouthChunkData() {
-        return southChunkData;
-    }
-
-    public void setSouthChunkData(ChunkData southChunkData) {
-        this.southChunkData = southChunkData;
-    }
-
-    public ChunkData getWestChunkData() {
-        return westChunkData;
-    }
-
-    public void setWestChunkData(ChunkData westChunkData) {
-        this.westChunkData = westChunkData;
-    }
-
-    public ChunkData getEastChunkData() {
-        return eastChunkData;
-    }
-
-    public void setEastChunkData(ChunkData eastChunkData) {
-        this.eastChunkData = eastChunkData;
+        OUTSIDE;
+
+        private static final Map<String, TETile> DUNGEON_TILES = Map.ofEntries(
+                new AbstractMap.SimpleEntry<>("floor", Tileset.FLOOR),
+                new AbstractMap.SimpleEntry<>("wall", Tileset.WALL),
+                new AbstractMap.SimpleEntry<>("base", Tileset.NOTHING)
+        );
+
+        private static final Map<String, TETile> OUTSIDE_TILES = Map.ofEntries(
+                new AbstractMap.SimpleEntry<>("deep ocean", Tileset.DEEP_OCEAN),
+                new AbstractMap.SimpleEntry<>("ocean", Tileset.OCEAN),
+                new AbstractMap.SimpleEntry<>("sea", Tileset.SEA),
+                new AbstractMap.SimpleEntry<>("beach", Tileset.BEACH),
+                new AbstractMap.SimpleEntry<>("plains", Tileset.PLAINS),
+                new AbstractMap.SimpleEntry<>("forest", Tileset.FOREST),
+                new AbstractMap.SimpleEntry<>("deep forest", Tileset.DEEP_FOREST),
+                new AbstractMap.SimpleEntry<>("hills", Tileset.HILLS),
+                new AbstractMap.SimpleEntry<>("cliffs", Tileset.CLIFFS),
+                new AbstractMap.SimpleEntry<>("mountains", Tileset.MOUNTAINS),
+                new AbstractMap.SimpleEntry<>("high mountains", Tileset.HIGH_MOUNTAINS),
+                new AbstractMap.SimpleEntry<>("icy mountains", Tileset.ICY_MOUNTAINS),
+                new AbstractMap.SimpleEntry<>("ice", Tileset.ICE)
+        );
+
+        /**
+         * @return the tiles that chunks of this type are built from, by name
+         */
+        public Map<String, TETile> getTileMap() {
+            return this == DUNGEON ? DUNGEON_TILES : OUTSIDE_TILES;
+        }
+    }
+
+    /**
+     * Writes the chunk in the save format. Only what cannot be rebuilt from the seed is written:
+     * the entities and their state. Every lasting change to the tiles of a chunk comes from an
+     * entity (doors, keys, lamps, monsters), so the tiles are rebuilt from the seed and the
+     * entities put their changes back when the chunk is made.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeLong(chunkSeed);
+        out.writeByte(type.ordinal());
+        SaveFormat.writePoint(out, chunkCenter);
+        out.writeBoolean(isPopulated);
+        out.writeInt(mobs.size());
+        for (Monster mob : mobs) {
+            mob.write(out);
+        }
+        out.writeInt(interactables.size());
+        for (Interactable interactable : interactables) {
+            SaveFormat.writeInteractable(out, interactable);
+        }
+    }
+
+    public static ChunkData read(DataInputStream in) throws IOException {
+        long seed = in.readLong();
+        ChunkType type = ChunkType.values()[in.readByte()];
+        ChunkData data = new ChunkData(seed, type.getTileMap(), type, SaveFormat.readPoint(in));
+        data.isPopulated = in.readBoolean();
+        int mobCount = in.readInt();
+        for (int i = 0; i < mobCount; i++) {
+            data.mobs.add(Monster.read(in));
+        }
+        int interactableCount = in.readInt();
+        for (int i = 0; i < interactableCount; i++) {
+            data.interactables.add(SaveFormat.readInteractable(in, data.mobs));
+        }
+        return data;
     }
 
     public Long getChunkSeed() {
@@ -85,6 +133,13 @@ public class ChunkData implements Serializable {
         this.tileMap = tileMap;
     }
 
+    public BitSet getExplored() {
+        if (explored == null) {
+            explored = new BitSet();
+        }
+        return explored;
+    }
+
     public ChunkType getType() {
         return type;
     }
@@ -97,6 +152,34 @@ public class ChunkData implements Serializable {
         return chunkCenter;
     }
 
+    /**
+     * @return the coordinates of the chunk in the grid of chunks, packed into a long
+     */
+    public long getChunkKey() {
+        return keyOf(chunkCenter);
+    }
+
+    /**
+     * Packs the coordinates of the chunk with the given center into a long. Chunk (0, 0) is the
+     * one centered at (STAGE_WIDTH / 2, STAGE_HEIGHT / 2).
+     *
+     * @param chunkCenter the center of a chunk
+     * @return the packed chunk coordinates
+     */
+    public static long keyOf(Point chunkCenter) {
+        long chunkX = Math.floorDiv(chunkCenter.getX(), Constants.STAGE_WIDTH);
+        long chunkY = Math.floorDiv(chunkCenter.getY(), Constants.STAGE_HEIGHT);
+        return (chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    public boolean isPopulated() {
+        return isPopulated;
+    }
+
+    public void setPopulated(boolean populated) {
+        isPopulated = populated;
+    }
+
     public List<Interactable> getInteractables() {
         return interactables;
     }
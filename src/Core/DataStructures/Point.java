@@ -32,6 +32,25 @@ public class Point implements Serializable {
         return r;
     }
 
+    /**
+     * Packs the coordinates of a point into a single int. Both coordinates have to fit in 16 bits.
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public int pack() {
+        return pack(x, y);
+    }
+
+    /**
+     * @param packed coordinates packed with pack
+     * @return the point with the packed coordinates
+     */
+    public static Point unpack(int packed) {
+        return new Point(packed >> 16, (short) packed);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof Point)) {
@@ -2,10 +2,13 @@ package Core.Entities;
 
 import Core.DataStructures.Point;
 import Core.Chunk;
-import Core.GameServices;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
 import TileEngine.Tileset;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 public class Door implements Interactable, Serializable {
@@ -26,11 +29,20 @@ public class Door implements Interactable, Serializable {
     private final Point loc;
     private DoorState state = DoorState.LOCKED;
 
-    private Chunk chunk;
+    private transient Chunk chunk;
 
     @Override
     public void init(Chunk chunk) {
         this.chunk = chunk;
+        //a regenerated chunk always starts with the door locked
+        if (state == DoorState.OPEN) {
+            chunk.setTile(loc, Tileset.FLOOR);
+        }
+    }
+
+    @Override
+    public void unload() {
+        this.chunk = null;
     }
 
     public Door(Point p) {
@@ -40,16 +52,30 @@ public class Door implements Interactable, Serializable {
     @Override
     public void action() {
         //Should change later to be more robust
-        if (!GameServices.getInstance().getPlayer().getInventory().isEmpty()) {
+        if (!chunk.getSession().getPlayer().getInventory().isEmpty()) {
             state = state.increase();
             if (state == DoorState.LOCKED) {
-                chunk.setTileCopy(loc, Tileset.LOCKED_DOOR);
+                chunk.setTile(loc, Tileset.LOCKED_DOOR);
             } else if (state == DoorState.OPEN) {
-                chunk.setTileCopy(loc, Tileset.FLOOR);
+                chunk.setTile(loc, Tileset.FLOOR);
             }
         }
     }
 
+    /**
+     * Writes the door in the save format.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, loc);
+        out.writeByte(state.ordinal());
+    }
+
+    public static Door read(DataInputStream in) throws IOException {
+        Door door = new Door(SaveFormat.readPoint(in));
+        door.state = DoorState.values()[in.readByte()];
+        return door;
+    }
+
     @Override
     public Point getLocation() {
         return loc;
@@ -48,4 +48,11 @@ public interface Entity extends Movable {
     default void init(Chunk chunk) {
 
     }
+
+    /**
+     * Lets go of the chunk the entity is in, once that chunk is no longer loaded.
+     */
+    default void unload() {
+
+    }
 }
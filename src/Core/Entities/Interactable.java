@@ -17,4 +17,11 @@ public interface Interactable {
     default void init(Chunk chunk) {
 
     }
+
+    /**
+     * Lets go of the chunk the object is in, once that chunk is no longer loaded.
+     */
+    default void unload() {
+
+    }
 }
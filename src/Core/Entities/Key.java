@@ -2,16 +2,19 @@ package Core.Entities;
 
 import Core.Chunk;
 import Core.DataStructures.Point;
-import Core.GameServices;
 import Core.Generators.Generator;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
 import TileEngine.Tileset;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 public class Key implements Interactable, Serializable {
     private final Point currLoc;
-    private Chunk chunk;
+    private transient Chunk chunk;
 
     private final TETile tile = Tileset.KEY;
     private TETile tileCurrentlyOn;
@@ -24,15 +27,31 @@ public class Key implements Interactable, Serializable {
     public void init(Chunk chunk) {
         this.chunk = chunk;
         tileCurrentlyOn = chunk.getTile(currLoc);
-        chunk.setTileCopy(currLoc, Tileset.KEY);
+        chunk.setTile(currLoc, Tileset.KEY);
+    }
+
+    @Override
+    public void unload() {
+        this.chunk = null;
     }
 
     @Override
     public void action() {
-        GameServices.getInstance().getPlayer().addToInventory(this);
+        chunk.getSession().getPlayer().addToInventory(this);
         chunk.getChunkData().getInteractables().remove(this);
         chunk.setTile(currLoc,
-                tileCurrentlyOn.copyOf().lighten(chunk.getTile(currLoc).getShade()));
+                tileCurrentlyOn.lighten(chunk.getTile(currLoc).getShade()));
+    }
+
+    /**
+     * Writes the key in the save format.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, currLoc);
+    }
+
+    public static Key read(DataInputStream in) throws IOException {
+        return new Key(SaveFormat.readPoint(in), null);
     }
 
     @Override
@@ -1,27 +1,30 @@
 package Core.Entities;
 
 import Core.DataStructures.Point;
-import Core.FieldOfView;
 import Core.Chunk;
-import Core.GameServices;
-import TileEngine.TERenderer;
+import Core.Lighting.LightMap;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 
 public class Lamp implements Interactable, Serializable {
-    private Chunk chunk;
+    private transient Chunk chunk;
     private final int lampStrength = 5;
 
     private boolean isOn = false;
     private final Point currentLoc;
     private ArrayList<Monster> mobs;
-    private Set<Point> reach;
-    private Point furthestTile;
+    /**
+     * The lamp's light in the light map of its chunk.
+     */
+    private transient LightMap.LightSource light;
 
     public Lamp(Point currentLoc, ArrayList<Monster> mobs) {
         this.currentLoc = currentLoc;
@@ -31,22 +34,24 @@ public class Lamp implements Interactable, Serializable {
     @Override
     public void init(Chunk chunk) {
         this.chunk = chunk;
-        setReach();
+        light = chunk.getLightMap().addSource(currentLoc, lampStrength);
     }
 
-    private void setReach() {
-        int bottomX = currentLoc.getX() - lampStrength;
-        int bottomY = currentLoc.getY() - lampStrength;
-        reach = new HashSet<>();
-        FieldOfView fov = new FieldOfView(chunk, lampStrength);
-        reach = new HashSet<>(fov.computeFov(currentLoc));
-        ArrayList<Point> reached = new ArrayList<>();
-        for (Point point : reach) {
-            if (!reached.contains(point)) {
-                reached.add(point);
-            }
+    /**
+     * Lights the lamp's tiles again if it was on, for when its chunk has been regenerated. Has
+     * to be called after everything in the chunk has been placed, since placing an entity
+     * resets the shade of its tile.
+     */
+    public void restoreLight() {
+        if (isOn) {
+            chunk.getLightMap().turnOn(light);
         }
-        furthestTile = new Point(bottomX, bottomY);
+    }
+
+    @Override
+    public void unload() {
+        this.chunk = null;
+        this.light = null;
     }
 
     @Override
@@ -62,16 +67,7 @@ public class Lamp implements Interactable, Serializable {
 
     private void turnOn() {
         synchronized (chunk) {
-            for (Point point : reach) {
-                if (chunk.getTile(point).equals(chunk.getChunkData().getTileMap().get("wall"))
-                        || chunk.getTile(point).equals(chunk.getChunkData().getTileMap().get("base"))) {
-                    continue;
-                }
-                chunk.getTile(point).lighten(Math.abs(Math
-                        .abs(furthestTile.manhattanDistance(currentLoc))
-                        - Math.abs(point.manhattanDistance(currentLoc))));
-
-            }
+            chunk.getLightMap().turnOn(light);
             isOn = true;
             updateEntities();
         }
@@ -79,40 +75,54 @@ public class Lamp implements Interactable, Serializable {
 
     private void turnOff() {
         synchronized (chunk) {
-            for (Point point : reach) {
-                chunk.getTile(point).reset();
-            }
+            chunk.getLightMap().turnOff(light);
             isOn = false;
             updateEntities();
         }
     }
 
-
+    /**
+     * Shades the player and monsters the lamp reaches to match the light where they stand, which
+     * includes the light of the other lamps that reach them.
+     */
     public void updateEntities() {
         synchronized (chunk) {
-            if (isOn) {
-                if (reach.contains(GameServices.getInstance().getPlayer().getCurrentLocation())) {
-                    GameServices.getInstance().getPlayer().setTileCurrentlyOn(GameServices.getInstance().getPlayer().getTileCurrentlyOn().lighten(Math.abs(Math
-                            .abs(furthestTile.manhattanDistance(currentLoc))
-                            - Math.abs(GameServices.getInstance().getPlayer().getCurrentLocation().manhattanDistance(currentLoc)))));
-                }
-                for (Monster mob : mobs) {
-                    if (reach.contains(mob.getCurrentLoc())) {
-                        mob.getTileCurrentlyOn().lighten(Math.abs(Math
-                                .abs(furthestTile.manhattanDistance(currentLoc))
-                                - Math.abs(mob.getCurrentLoc().manhattanDistance(currentLoc))));
-
-                    }
-                }
-            } else {
-                GameServices.getInstance().getPlayer().getTileCurrentlyOn().reset();
-                for (Monster mob : mobs) {
-                    mob.getTileCurrentlyOn().reset();
+            LightMap lightMap = chunk.getLightMap();
+            Player player = chunk.getSession().getPlayer();
+            Point playerLoc = player.getCurrentLocation();
+            if (light.reaches(playerLoc)) {
+                player.setTileCurrentlyOn(player.getTileCurrentlyOn().unlit().lighten(
+                        lightMap.getShade(playerLoc)));
+            }
+            for (Monster mob : mobs) {
+                Point mobLoc = mob.getCurrentLoc();
+                if (light.reaches(mobLoc)) {
+                    mob.setTileCurrentlyOn(mob.getTileCurrentlyOn().unlit().lighten(
+                            lightMap.getShade(mobLoc)));
                 }
             }
         }
     }
 
+    /**
+     * Writes the lamp in the save format.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, currentLoc);
+        out.writeBoolean(isOn);
+    }
+
+    /**
+     * Reads a lamp written with write.
+     *
+     * @param mobs the monsters of the lamp's chunk
+     */
+    public static Lamp read(DataInputStream in, List<Monster> mobs) throws IOException {
+        Lamp lamp = new Lamp(SaveFormat.readPoint(in), new ArrayList<>(mobs));
+        lamp.isOn = in.readBoolean();
+        return lamp;
+    }
+
     @Override
     public Point getLocation() {
         return currentLoc;
@@ -4,21 +4,22 @@ import Core.Chunk;
 import Core.Constants;
 import Core.DataStructures.Direction;
 import Core.DataStructures.Point;
-import Core.DataStructures.Tile;
-import Core.GameServices;
-import TileEngine.TERenderer;
+import Core.Pathfinding.AStar;
+import Core.Pathfinding.FlowField;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
+import TileEngine.TileProperties;
 import TileEngine.Tileset;
-import edu.princeton.cs.algs4.StdDraw;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 
 public class Monster implements Entity, Serializable {
-    private Chunk chunk;
+    private transient Chunk chunk;
     private final TETile AVATAR;
     private Point currentLoc;
     private int currHealth;
@@ -42,7 +43,12 @@ public class Monster implements Entity, Serializable {
             return;
         }
         this.tileCurrentlyOn = this.chunk.getTile(currentLoc);
-        this.chunk.setTileCopy(currentLoc, AVATAR.copyOf());
+        this.chunk.setTile(currentLoc, AVATAR);
+    }
+
+    @Override
+    public void unload() {
+        this.chunk = null;
     }
 
     @Override
@@ -54,8 +60,8 @@ public class Monster implements Entity, Serializable {
         synchronized (chunk) {
             for (Direction dir : Direction.ORDINAL) {
                 Point selectedPosition = currentLoc.addDirection(dir, 1);
-                if (chunk.isInBounds(selectedPosition) && chunk.getTile(selectedPosition).equals(GameServices.getInstance().getPlayer().getAVATAR())) {
-                    GameServices.getInstance().getPlayer().getDamaged(getDamage());
+                if (chunk.isInBounds(selectedPosition) && chunk.getTile(selectedPosition).equals(chunk.getSession().getPlayer().getAVATAR())) {
+                    chunk.getSession().getPlayer().getDamaged(getDamage());
                     break;
                 }
             }
@@ -76,25 +82,20 @@ public class Monster implements Entity, Serializable {
     public void getDamaged(int damageDealt) {
         synchronized (chunk) {
             this.currHealth -= damageDealt;
-            chunk.setTile(currentLoc,
-                    Tileset.ATTACKED_MONSTER.copyOf().lighten(tileCurrentlyOn.getShade()));
-            TERenderer.getInstance().renderFrame(chunk.getFloorArray(), chunk.getChunkData().getMobs());
-            StdDraw.pause(100);
+            chunk.getSession().getRenderer().flash(currentLoc,
+                    Tileset.ATTACKED_MONSTER.lighten(tileCurrentlyOn.getShade()),
+                    Constants.HIT_FLASH_MILLIS);
             if (this.currHealth <= 0) {
                 hidePath();
                 //if the monster has been killed, remove it from the field
-                chunk.setTile(currentLoc, tileCurrentlyOn.copyOf().lighten(tileCurrentlyOn.getShade()));
+                chunk.setTile(currentLoc, tileCurrentlyOn.lighten(tileCurrentlyOn.getShade()));
                 chunk.getChunkData().getMobs().remove(this);
                 chunk.getChunkData().getMobs().forEach((Monster mob) -> {
                     if (!mob.isFrozen) {
                         mob.showPath();
                     }
                 });
-            } else {
-                chunk.setTile(currentLoc, Tileset.MONSTER.copyOf()
-                        .lighten(tileCurrentlyOn.getShade()));
             }
-            TERenderer.getInstance().renderFrame(chunk.getFloorArray(), chunk.getChunkData().getMobs());
         }
     }
 
@@ -106,153 +107,152 @@ public class Monster implements Entity, Serializable {
     @Override
     public boolean canMoveTo(Point p) {
         synchronized (chunk) {
-            return chunk.isInBounds(p) && Tileset.reachableEntityTiles.contains(chunk.getTile(p));
+            return chunk.isInBounds(p) && chunk.hasFlag(p, TileProperties.WALKABLE);
         }
     }
 
     public boolean canMove(Point p) {
         synchronized (chunk) {
-            return chunk.isInBounds(p) && Tileset.reachablePathfindingTiles.contains(chunk.getTile(p));
+            return chunk.isInBounds(p) && chunk.hasFlag(p, TileProperties.PATHABLE);
         }
     }
 
 
     @Override
     public void move() {
-        if (isFrozen && currentLoc.manhattanDistance(GameServices.getInstance().getPlayer().getCurrentLocation()) <= Constants.MONSTER_RANGE) {
+        if (isFrozen && currentLoc.manhattanDistance(chunk.getSession().getPlayer().getCurrentLocation()) <= Constants.MONSTER_RANGE) {
             isFrozen = false;
         }
         if (!isFrozen) {
-            Thread mover = new Thread(this::moveHelper);
-            Constants.EXECUTOR_SERVICE.execute(mover);
+            moveHelper();
         }
     }
 
     private void moveHelper() {
         synchronized (chunk) {
             hidePath();
-            Tile tile = optimalPathToPlayer(currentLoc, GameServices.getInstance().getPlayer().getCurrentLocation());
-            if (tile != null) {
-                List<Point> moves = new ArrayList<>();
-                tile = tile.getParent();
-                if (tile == null) {
-                    moves.add(tile.getCoordinates());
-                } else {
-                    while (tile.getParent() != null) {
-                        if (showPath) {
-                            if (!chunk.getTile(tile.getCoordinates()).equals(AVATAR)) {
-                                chunk.setTile(tile.getCoordinates(), Tileset.TREE);
-                            }
-                        }
-                        moves.add(tile.getCoordinates());
-                        tile = tile.getParent();
-                    }
-                    Collections.reverse(moves);
+            Point nextLoc = nextStepToPlayer();
+            if (nextLoc != null && canMove(nextLoc)) {
+                chunk.setTile(currentLoc, tileCurrentlyOn);
+                tileCurrentlyOn = chunk.getTile(nextLoc);
+                if (tileCurrentlyOn.equals(Tileset.TREE)) {
+                    tileCurrentlyOn = chunk.getChunkData().getTileMap().get("floor");
                 }
-                pathBlocks.addAll(moves);
-                if (moves.size() > 0 && canMove(moves.get(0))) {
-                    chunk.setTile(currentLoc, tileCurrentlyOn);
-                    tileCurrentlyOn = chunk.getTile(moves.get(0));
-                    if (tileCurrentlyOn.equals(Tileset.TREE)) {
-                        tileCurrentlyOn = chunk.getChunkData().getTileMap().get("floor").copyOf();
-                    }
-                    chunk.setTile(moves.get(0),
-                            Tileset.MONSTER.copyOf().lighten(tileCurrentlyOn.getShade()));
-                    currentLoc = moves.get(0);
-                }
-                chunk.getChunkData().getMobs().forEach((Monster mob) -> {
-                    if (!mob.isFrozen) {
-                        mob.showPath();
-                    }
-                });
+                chunk.setTile(nextLoc,
+                        Tileset.MONSTER.lighten(tileCurrentlyOn.getShade()));
+                currentLoc = nextLoc;
             }
+            chunk.getChunkData().getMobs().forEach((Monster mob) -> {
+                if (!mob.isFrozen) {
+                    mob.showPath();
+                }
+            });
             attack();
         }
     }
 
+    /**
+     * Picks the neighbouring tile that is closest to the player, using the chunk's flow field.
+     * Monsters that are too far away to be in the flow field search for a path themselves.
+     *
+     * @return where the monster should step next, or null if it should stay where it is
+     */
+    private Point nextStepToPlayer() {
+        FlowField field = chunk.getFlowField();
+        boolean isInField = field.distanceAt(currentLoc) != -1;
+        int bestDistance = isInField ? field.distanceAt(currentLoc) : Integer.MAX_VALUE;
+        Point best = null;
+        for (Direction dir : Direction.ORDINAL) {
+            Point neighbor = currentLoc.addDirection(dir, 1);
+            int distance = field.distanceAt(neighbor);
+            if (distance == 0) {
+                //already next to the player
+                return null;
+            }
+            if (distance != -1 && distance < bestDistance && canMoveTo(neighbor)) {
+                best = neighbor;
+                bestDistance = distance;
+            }
+        }
+        if (best != null || isInField) {
+            return best;
+        }
+        Point playerLoc = chunk.getSession().getPlayer().getCurrentLocation();
+        int[] path = optimalPathToPlayer(currentLoc, playerLoc);
+        if (path == null || path.length == 0 || path[0] == playerLoc.pack()) {
+            return null;
+        }
+        return Point.unpack(path[0]);
+    }
+
     public void showPath() {
         synchronized (chunk) {
-            Tile tile = optimalPathToPlayer(currentLoc, GameServices.getInstance().getPlayer().getCurrentLocation());
-            if (tile != null) {
-                List<Point> moves = new ArrayList<>();
-                tile = tile.getParent();
-                if (tile == null) {
-                    moves.add(tile.getCoordinates());
-                } else {
-                    while (tile.getParent() != null) {
-                        if (showPath) {
-                            if (!chunk.getTile(tile.getCoordinates()).equals(AVATAR)) {
-                                chunk.setTile(tile.getCoordinates(), Tileset.TREE);
-                            }
+            if (!showPath) {
+                return;
+            }
+            FlowField field = chunk.getFlowField();
+            int distance = field.distanceAt(currentLoc);
+            if (distance == -1) {
+                Point playerLoc = chunk.getSession().getPlayer().getCurrentLocation();
+                int[] path = optimalPathToPlayer(currentLoc, playerLoc);
+                if (path != null) {
+                    for (int packed : path) {
+                        if (packed != playerLoc.pack()) {
+                            markPath(Point.unpack(packed));
                         }
-                        moves.add(tile.getCoordinates());
-                        tile = tile.getParent();
                     }
-                    Collections.reverse(moves);
                 }
-                pathBlocks.addAll(moves);
+                return;
+            }
+            //walk down the flow field until next to the player
+            Point p = currentLoc;
+            while (distance > 1) {
+                Point next = null;
+                for (Direction dir : Direction.ORDINAL) {
+                    Point neighbor = p.addDirection(dir, 1);
+                    if (field.distanceAt(neighbor) == distance - 1) {
+                        next = neighbor;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                markPath(next);
+                p = next;
+                distance--;
             }
         }
     }
 
+    private void markPath(Point p) {
+        if (!chunk.getTile(p).equals(AVATAR)) {
+            chunk.setTile(p, Tileset.TREE);
+        }
+        pathBlocks.add(p);
+    }
+
     public void hidePath() {
         synchronized (chunk) {
             for (Point p : this.pathBlocks) {
                 if (chunk.getTile(p).equals(Tileset.TREE)) {
-                    chunk.setTileCopy(p, chunk.getChunkData().getTileMap().get("floor").copyOf());
+                    chunk.setTile(p, chunk.getChunkData().getTileMap().get("floor"));
                 }
             }
+            pathBlocks.clear();
         }
     }
 
-    private Tile optimalPathToPlayer(Point start, Point end) {
+    /**
+     * Finds the shortest path from start to end.
+     *
+     * @return the locations along the path packed with Point.pack, not including start, or null
+     *      if there is no path
+     */
+    private int[] optimalPathToPlayer(Point start, Point end) {
         synchronized (chunk) {
-            PriorityQueue<Tile> open = new PriorityQueue<>();
-            PriorityQueue<Tile> closed = new PriorityQueue<>();
-            Tile startTile = new Tile(start, 0, start.manhattanDistance(end));
-            open.add(startTile);
-            while (!open.isEmpty()) {
-                Tile t = open.peek();
-                if (t.getCoordinates().equals(end)) {
-                    return t;
-                }
-                for (Direction dir : Direction.ORDINAL) {
-                    Tile x = new Tile(t.getCoordinates().addDirection(dir, 1));
-                    if (canMoveTo(x.getCoordinates())) {
-                        double weight = t.getGCost() + 1;
-                        if (!open.contains(x) && !closed.contains(x)) {
-                            x.setParent(t);
-                            x.setGCost(weight);
-                            x.setHCost(x.getCoordinates().manhattanDistance(end));
-                            open.add(x);
-                        } else {
-                            ArrayList<Tile> openList = new ArrayList<>(open.stream().toList());
-                            ArrayList<Tile> closedList = new ArrayList<>(closed.stream().toList());
-                            if (openList.contains(x)) {
-                                Tile oldTile = openList.get(openList.indexOf(x));
-                                x.setGCost(oldTile.getGCost());
-                                x.setHCost(oldTile.getHCost());
-                            } else if (closedList.contains(x)) {
-                                Tile oldTile = closedList.get(closedList.indexOf(x));
-                                x.setGCost(oldTile.getGCost());
-                                x.setHCost(oldTile.getHCost());
-                            }
-                            if (weight < x.getGCost()) {
-                                x.setParent(t);
-                                x.setGCost(weight);
-                                x.setHCost(x.getCoordinates().manhattanDistance(end));
-                                if (closed.contains(x)) {
-                                    closed.remove(x);
-                                    open.add(x);
-                                }
-                            }
-                        }
-                    }
-                }
-                open.remove(t);
-                closed.add(t);
-            }
-            return null;
+            return AStar.forSize(chunk.getWidth(), chunk.getHeight()).findPath(chunk.map(),
+                    TileProperties.WALKABLE, start, end, Constants.PATHFINDING_BUDGET);
         }
     }
 
@@ -268,6 +268,23 @@ public class Monster implements Entity, Serializable {
         return currentLoc.equals(p);
     }
 
+    /**
+     * Writes the monster in the save format. Its tile is taken from the chunk when the chunk is
+     * rebuilt, so it is not saved.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, currentLoc);
+        out.writeInt(currHealth);
+        out.writeBoolean(isFrozen);
+    }
+
+    public static Monster read(DataInputStream in) throws IOException {
+        Monster monster = new Monster(Tileset.MONSTER, SaveFormat.readPoint(in),
+                in.readInt());
+        monster.isFrozen = in.readBoolean();
+        return monster;
+    }
+
     public Point getCurrentLoc() {
         return currentLoc;
     }
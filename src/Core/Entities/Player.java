@@ -3,12 +3,14 @@ package Core.Entities;
 import Core.Constants;
 import Core.DataStructures.*;
 import Core.Chunk;
-import Core.GameServices;
-import TileEngine.TERenderer;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
+import TileEngine.TileProperties;
 import TileEngine.Tileset;
-import edu.princeton.cs.algs4.StdDraw;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,90 +21,7 @@ import java.util.Optional;
  */
 public class Player implements Entity, Serializable {
 
-    /**
-     * An attack of the player.
-     * Implements Thread so that concurrent tasks can be fulfilled while the attack moves.
-     */
-    public static class PlayerAttack extends Thread implements Serializable {
-        private final Direction currentlyFacing;
-        private final Point currentLoc;
-        private final Chunk floorGen;
-        private final Player player;
-
-        public PlayerAttack(Direction currentlyFacing, Point currentLoc, Chunk floorGen,
-                            Player player) {
-            this.currentLoc = currentLoc;
-            this.currentlyFacing = currentlyFacing;
-            this.floorGen = floorGen;
-            this.player = player;
-        }
-
-        @Override
-        public void run() {
-            move();
-        }
-
-        private void move() {
-            synchronized (floorGen) {
-                player.decreaseMana(5);
-                int count = 0;
-                Direction attackDirection = currentlyFacing;
-                Point attackLocation = currentLoc.addDirection(attackDirection, 1);
-                Point prevLocation = currentLoc;
-                TETile tileCurrentlyOn = Tileset.FLOOR.copyOf();
-                while (canMoveTo(attackLocation) && count <= 15) {
-                    if (!prevLocation.equals(currentLoc)) {
-                        floorGen.setTile(prevLocation, tileCurrentlyOn);
-                    }
-                    tileCurrentlyOn = floorGen.getTile(attackLocation);
-                    floorGen.setTile(attackLocation, Tileset.FLOWER);
-                    attackLocation = attackLocation.addDirection(attackDirection, 1);
-                    prevLocation = prevLocation.addDirection(attackDirection, 1);
-                    count++;
-                    TERenderer.getInstance().renderFrame(floorGen.getFloorArray(),
-                            floorGen.getChunkData().getMobs());
-                }
-                if (floorGen.getTile(attackLocation.addDirection(attackDirection, -1))
-                        .equals(Tileset.FLOWER)) {
-                    floorGen.setTile(prevLocation, tileCurrentlyOn);
-                }
-                //Render attack
-                TERenderer.getInstance().renderFrame(floorGen.getFloorArray(),
-                         floorGen.getChunkData().getMobs());
-                attackMonster(attackLocation);
-            }
-        }
-
-        private boolean canMoveTo(Point p) {
-            synchronized (floorGen) {
-                return floorGen.isInBounds(p) && Tileset.reachableAttackTiles.contains(floorGen.getTile(p));
-            }
-        }
-
-        private void attackMonster(Point p) {
-            synchronized (floorGen) {
-                int index = -1;
-                ArrayList<Monster> mobs = new ArrayList<>(floorGen.getChunkData().getMobs());
-                for (int i = 0; i < mobs.size(); i++) {
-                    if (mobs.get(i).sameLocation(p)) {
-                        index = i;
-                        break;
-                    }
-                }
-                if (index != -1) {
-                    floorGen.getChunkData().getMobs().get(index).getDamaged(player.getDamage());
-                }
-            }
-        }
-    }
-
-
-
-
-
-
-
-    private Chunk chunk;
+    private transient Chunk chunk;
     private final TETile AVATAR;
     private Point currentLoc;
     private Direction currentlyFacing = Direction.UP;
@@ -124,27 +43,36 @@ public class Player implements Entity, Serializable {
         this.maxMana = mana;
     }
 
+    /**
+     * Makes a player that is not in any chunk yet, for loading a saved game.
+     */
+    private Player(TETile avatar, int maxHealth, int maxMana) {
+        this.AVATAR = avatar;
+        this.maxHealth = maxHealth;
+        this.maxMana = maxMana;
+    }
+
     /**
      * Spawns the player in the current chunk, randomly.
      */
     public void spawn() {
         synchronized (chunk) {
-            for(int row = 0; row < this.chunk.map().length; row++) {
-                for(int col = 0; col < this.chunk.map()[0].length; col++) {
+            for(int row = 0; row < this.chunk.getWidth(); row++) {
+                for(int col = 0; col < this.chunk.getHeight(); col++) {
                     Point loc = new Point(row, col);
                     Optional<Room> room =
                             this.chunk.rooms().stream().filter(element -> element.containsPoint(loc)).findFirst();
                     if(room.isPresent()) {
                         if(!room.get().isLocked()) {
                             this.currentLoc = loc;
-                            this.tileCurrentlyOn = this.chunk.map()[row][col].copyOf();
-                            this.chunk.setTileCopy(currentLoc, AVATAR);
+                            this.tileCurrentlyOn = this.chunk.getTile(loc);
+                            this.chunk.setTile(currentLoc, AVATAR);
                             return;
                         }
                     }else if(canMoveTo(loc)) {
                         this.currentLoc = loc;
-                        this.tileCurrentlyOn = this.chunk.map()[row][col].copyOf();
-                        this.chunk.setTileCopy(currentLoc, AVATAR);
+                        this.tileCurrentlyOn = this.chunk.getTile(loc);
+                        this.chunk.setTile(currentLoc, AVATAR);
                         return;
                     }
                 }
@@ -160,20 +88,75 @@ public class Player implements Entity, Serializable {
      */
     public boolean spawn(Point p, Chunk chunk) {
         synchronized (chunk) {
-            System.out.println("IS in bounds: " + chunk.isInBounds(p));
-            System.out.println("The tile is: " + chunk.getTile(p));
-            if(chunk.isInBounds(p) && Tileset.reachableEntityTiles.contains(chunk.getTile(p))) {
+            if(chunk.isInBounds(p) && chunk.hasFlag(p, TileProperties.WALKABLE)) {
+                //the old chunk may be visited again, so put back the tile the player was on
+                this.chunk.setTile(currentLoc, tileCurrentlyOn);
                 this.chunk = chunk;
                 this.currentLoc = p;
-                this.tileCurrentlyOn = chunk.map()[p.getX()][p.getY()].copyOf();
-                System.out.println("Tile currently on: " + tileCurrentlyOn);
-                this.chunk.setTileCopy(p, AVATAR);
+                this.tileCurrentlyOn = chunk.getTile(p);
+                this.chunk.setTile(p, AVATAR);
                 return true;
             }
             return false;
         }
     }
 
+    /**
+     * Puts the player back into a chunk that was rebuilt after loading a game, at the location
+     * the player was saved at.
+     *
+     * @param chunk the chunk the player was in when the game was saved
+     */
+    public void enter(Chunk chunk) {
+        synchronized (chunk) {
+            this.chunk = chunk;
+            this.tileCurrentlyOn = chunk.getTile(currentLoc);
+            //keep the light of a lamp that shines on the player
+            int shade = chunk.getShade(currentLoc);
+            this.chunk.setTile(currentLoc, AVATAR);
+            this.chunk.setShade(currentLoc, shade);
+        }
+    }
+
+    /**
+     * Writes the player in the save format. The tile under the player is taken from the chunk
+     * when the player enters it again, so it is not saved.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, currentLoc);
+        out.writeByte(currentlyFacing.ordinal());
+        out.writeInt(currHealth);
+        out.writeInt(maxHealth);
+        out.writeInt(mana);
+        out.writeInt(maxMana);
+        out.writeInt(inventory.size());
+        for (Interactable thing : inventory) {
+            SaveFormat.writeInteractable(out, thing);
+        }
+    }
+
+    /**
+     * Reads a player written with write. The player has to enter a chunk before it is used.
+     */
+    public static Player read(DataInputStream in) throws IOException {
+        Point location = SaveFormat.readPoint(in);
+        Direction facing = Direction.values()[in.readByte()];
+        int health = in.readInt();
+        int maxHealth = in.readInt();
+        int mana = in.readInt();
+        int maxMana = in.readInt();
+        Player player = new Player(Tileset.AVATAR, maxHealth, maxMana);
+        player.currentLoc = location;
+        player.currentlyFacing = facing;
+        player.currHealth = health;
+        player.mana = mana;
+        int inventorySize = in.readInt();
+        for (int i = 0; i < inventorySize; i++) {
+            player.inventory.add(SaveFormat.readInteractable(in, List.of()));
+        }
+        return player;
+    }
+
     @Override
     public void interactWith(List<Interactable> objects) {
         synchronized (chunk) {
@@ -190,9 +173,8 @@ public class Player implements Entity, Serializable {
     @Override
     public void attack() {
         if (mana > 0) {
-            PlayerAttack attack = new PlayerAttack(currentlyFacing, currentLoc, chunk,
-                    this);
-            Constants.EXECUTOR_SERVICE.execute(attack);
+            decreaseMana(5);
+            chunk.addProjectile(Projectile.flower(currentLoc, currentlyFacing, getDamage()));
         }
 
     }
@@ -201,15 +183,12 @@ public class Player implements Entity, Serializable {
     public void getDamaged(int damageDealt) {
         synchronized (chunk) {
             decreaseHealth(damageDealt);
-            chunk.setTile(currentLoc,
-                    Tileset.ATTACKED_AVATAR.copyOf().lighten(tileCurrentlyOn.getShade()));
-            StdDraw.pause(100);
+            chunk.getSession().getRenderer().flash(currentLoc,
+                    Tileset.ATTACKED_AVATAR.lighten(tileCurrentlyOn.getShade()),
+                    Constants.HIT_FLASH_MILLIS);
             if (this.currHealth == 0) {
                 chunk.setTile(currentLoc, tileCurrentlyOn);
-                GameServices.getInstance().setGameStatus(GameStatus.LOST);
-            } else {
-                chunk.setTile(currentLoc,
-                        AVATAR.copyOf().lighten(tileCurrentlyOn.getShade()));
+                chunk.getSession().getServices().setGameStatus(GameStatus.LOST);
             }
         }
     }
@@ -217,7 +196,7 @@ public class Player implements Entity, Serializable {
     @Override
     public boolean canMoveTo(Point p) {
         synchronized (chunk) {
-            return chunk.isInBounds(p) && Tileset.reachableEntityTiles.contains(chunk.getTile(p));
+            return chunk.isInBounds(p) && chunk.hasFlag(p, TileProperties.WALKABLE);
         }
     }
 
@@ -253,9 +232,9 @@ public class Player implements Entity, Serializable {
                 chunk.setTile(currentLoc, tileCurrentlyOn);
                 tileCurrentlyOn = chunk.getTile(newLoc);
                 if(tileCurrentlyOn.equals(Tileset.TREE)) {
-                    tileCurrentlyOn = chunk.getChunkData().getTileMap().get("floor").copyOf();
+                    tileCurrentlyOn = chunk.getChunkData().getTileMap().get("floor");
                 }
-                chunk.setTile(newLoc, AVATAR.copyOf().lighten(tileCurrentlyOn.getShade()));
+                chunk.setTile(newLoc, AVATAR.lighten(tileCurrentlyOn.getShade()));
                 currentLoc = newLoc;
             }
         }
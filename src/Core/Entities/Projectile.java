@@ -0,0 +1,152 @@
+package Core.Entities;
+
+import Core.Chunk;
+import Core.DataStructures.Direction;
+import Core.DataStructures.Point;
+import TileEngine.TETile;
+import TileEngine.TileProperties;
+import TileEngine.Tileset;
+
+/**
+ * Something flying across a chunk, such as the flower the player attacks with.
+ * <p>
+ * A projectile moves one tile every time it is stepped, which the game loop does every tick, so
+ * any number of them can be in flight without threads. It stops when the next tile blocks it, a
+ * monster is in the way or it runs out of range, and damages the monster in the tile that stopped
+ * it, if there is one. Something that walks onto the projectile stops it too, and is hit if it is
+ * a monster.
+ */
+public class Projectile {
+    private final Direction direction;
+    private final int damage;
+    private final TETile tile;
+    private Point location;
+    private int rangeLeft;
+    /**
+     * The tile the projectile is drawn over, or null if it has not left its start yet.
+     */
+    private TETile tileUnder;
+    private boolean isDone;
+
+    /**
+     * @param start     where the projectile starts. It is not drawn until it leaves.
+     * @param direction where the projectile flies
+     * @param range     how many tiles the projectile can fly
+     * @param damage    the damage done to the monster it hits
+     * @param tile      how the projectile looks
+     */
+    public Projectile(Point start, Direction direction, int range, int damage, TETile tile) {
+        this.location = start;
+        this.direction = direction;
+        this.rangeLeft = range;
+        this.damage = damage;
+        this.tile = tile;
+    }
+
+    /**
+     * The attack of the player, a flower that flies up to 16 tiles.
+     */
+    public static Projectile flower(Point start, Direction direction, int damage) {
+        return new Projectile(start, direction, 16, damage, Tileset.FLOWER);
+    }
+
+    /**
+     * Moves the projectile one tile, or hits what is in front of it.
+     *
+     * @param chunk the chunk the projectile is flying through
+     */
+    public void step(Chunk chunk) {
+        if (isDone) {
+            return;
+        }
+        if (tileUnder != null && !chunk.getTile(location).equals(tile)) {
+            //something walked onto the projectile
+            remove(chunk);
+            hit(chunk, location);
+            return;
+        }
+        Point next = location.addDirection(direction, 1);
+        if (rangeLeft == 0 || !chunk.isInBounds(next)
+                || !chunk.hasFlag(next, TileProperties.PROJECTILE_PASSABLE)
+                || mobAt(chunk, next) != null) {
+            remove(chunk);
+            hit(chunk, next);
+            return;
+        }
+        TETile nextTileUnder = chunk.getTile(next);
+        //another projectile's tile is not what is under it
+        for (Projectile other : chunk.getProjectiles()) {
+            if (other != this && other.isDrawnAt(next)) {
+                nextTileUnder = other.tileUnder;
+            }
+        }
+        lift(chunk);
+        location = next;
+        tileUnder = nextTileUnder;
+        chunk.setTile(location, tile);
+        rangeLeft--;
+    }
+
+    /**
+     * Takes the projectile off the chunk, putting back the tile it was drawn over.
+     */
+    public void remove(Chunk chunk) {
+        lift(chunk);
+        isDone = true;
+    }
+
+    private void lift(Chunk chunk) {
+        if (tileUnder == null) {
+            return;
+        }
+        if (chunk.getTile(location).equals(tile)) {
+            boolean isShared = false;
+            for (Projectile other : chunk.getProjectiles()) {
+                isShared = isShared || (other != this && other.isDrawnAt(location));
+            }
+            if (!isShared) {
+                chunk.setTile(location, tileUnder);
+            }
+        } else {
+            //whoever walked onto the projectile thinks they are standing on it
+            Player player = chunk.getSession().getPlayer();
+            if (player != null && player.getCurrentLocation().equals(location)
+                    && tile.equals(player.getTileCurrentlyOn())) {
+                player.setTileCurrentlyOn(tileUnder);
+            }
+            Monster mob = mobAt(chunk, location);
+            if (mob != null && tile.equals(mob.getTileCurrentlyOn())) {
+                mob.setTileCurrentlyOn(tileUnder);
+            }
+        }
+        tileUnder = null;
+    }
+
+    private void hit(Chunk chunk, Point p) {
+        Monster mob = mobAt(chunk, p);
+        if (mob != null) {
+            mob.getDamaged(damage);
+        }
+    }
+
+    private static Monster mobAt(Chunk chunk, Point p) {
+        for (Monster mob : chunk.getChunkData().getMobs()) {
+            if (mob.sameLocation(p)) {
+                return mob;
+            }
+        }
+        return null;
+    }
+
+    private boolean isDrawnAt(Point p) {
+        return tileUnder != null && location.equals(p);
+    }
+
+    public boolean isDone() {
+        return isDone;
+    }
+
+    public Point getLocation() {
+        return location;
+    }
+}
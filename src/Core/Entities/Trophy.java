@@ -1,24 +1,51 @@
 package Core.Entities;
 
+import Core.Chunk;
 import Core.DataStructures.GameStatus;
 import Core.DataStructures.Point;
-import Core.GameServices;
+import Core.Storage.SaveFormat;
 import TileEngine.TETile;
 import TileEngine.Tileset;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 public class Trophy implements Interactable, Serializable {
+    private transient Chunk chunk;
     private Point currLoc;
-    private final TETile AVATAR = Tileset.TROPHY.copyOf();
+    private final TETile AVATAR = Tileset.TROPHY;
 
     public Trophy(Point currLoc) {
         this.currLoc = currLoc;
     }
+
+    @Override
+    public void init(Chunk chunk) {
+        this.chunk = chunk;
+    }
+
+    @Override
+    public void unload() {
+        this.chunk = null;
+    }
+
     @Override
     public void action() {
-        GameServices.getInstance().setGameStatus(GameStatus.WON);
+        chunk.getSession().getServices().setGameStatus(GameStatus.WON);
+    }
+    /**
+     * Writes the trophy in the save format.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        SaveFormat.writePoint(out, currLoc);
     }
+
+    public static Trophy read(DataInputStream in) throws IOException {
+        return new Trophy(SaveFormat.readPoint(in));
+    }
+
     @Override
     public Point getLocation() {
         return currLoc;
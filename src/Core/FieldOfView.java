@@ -1,204 +1,128 @@
 package Core;
 
-import Core.DataStructures.Direction;
 import Core.DataStructures.Point;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.BitSet;
 
 /**
  * A class that deals with creating a field of view around the given object.
  * Ex. Player, light source, etc.
+ * <p>
+ * Uses symmetric shadowcasting over the four quadrants around the origin. Everything works on
+ * int coordinates: which tiles block light is read from the chunk's light blocker bitmap, and
+ * the visible tiles are set in a bitmap indexed like the chunk's TileGrid. The bitmap is reused by
+ * every call, so a field of view allocates nothing. Not thread safe; give each thread its own.
  */
 public class FieldOfView {
-    ArrayList<Point> visiblePoints = new ArrayList<>();
-    Chunk floorGen;
+    private final Chunk floorGen;
     private final int radius;
+    private final int width;
+    private final int height;
+    private final BitSet visible;
+    private BitSet blocking;
+    private int originX;
+    private int originY;
 
     public FieldOfView(Chunk floorGen, int radius) {
         this.floorGen = floorGen;
         this.radius = radius;
+        this.width = floorGen.getWidth();
+        this.height = floorGen.getHeight();
+        this.visible = new BitSet(width * height);
     }
 
-    public synchronized List<Point> computeFov(Point origin) {
-        markVisible(origin);
-        for (Direction dir : Direction.ORDINAL) {
-            Quadrant quad = new Quadrant(dir, origin);
-            Row firstRow = new Row(1, -1, 1);
-            scan(quad, firstRow);
+    /**
+     * Finds every tile that can be seen from the given origin.
+     *
+     * @return the visible tiles, set at x * height + y. The bitmap is reused by the next call,
+     *      so it has to be copied to be kept.
+     */
+    public BitSet computeFov(int x, int y) {
+        visible.clear();
+        blocking = floorGen.getLightBlockers();
+        originX = x;
+        originY = y;
+        visible.set(index(x, y));
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            scan(quadrant, 1, -1, 1);
         }
-        return this.visiblePoints;
+        return visible;
     }
 
+    public BitSet computeFov(Point origin) {
+        return computeFov(origin.getX(), origin.getY());
+    }
 
-
-
-    public synchronized void scan(Quadrant quad, Row row) {
-        if(row.depth >= this.radius) {
+    /**
+     * Scans a row of a quadrant and the rows behind it that can be seen through it.
+     *
+     * @param depth      how far the row is from the origin
+     * @param startSlope the slope of the left edge of the visible part of the row
+     * @param endSlope   the slope of the right edge of the visible part of the row
+     */
+    private void scan(int quadrant, int depth, double startSlope, double endSlope) {
+        if (depth >= radius) {
             return;
         }
-        Point prevTile = null;
-        for(Point tile : row) {
-            if(isWall(quad, tile) || isSymmetric(row, tile)) {
-                reveal(quad, tile);
+        int minCol = (int) Math.floor(depth * startSlope + 0.5);
+        int maxCol = (int) Math.ceil(depth * endSlope - 0.5);
+        boolean hasPrevious = false;
+        boolean wasWall = false;
+        for (int col = minCol; col <= maxCol + 1; col++) {
+            int tile = transform(quadrant, depth, col);
+            boolean isWall = blocking.get(tile);
+            if (isWall || (col >= depth * startSlope && col <= depth * endSlope)) {
+                visible.set(tile);
             }
-            if(isWall(quad, prevTile) && isFloor(quad, tile)) {
-                row.startSlope = slope(tile);
+            if (hasPrevious && wasWall && !isWall) {
+                startSlope = slope(depth, col);
             }
-            if(isFloor(quad, prevTile) && isWall(quad, tile)) {
-                Row nextRow = row.next();
-                nextRow.endSlope = slope(tile);
-                scan(quad, nextRow);
+            if (hasPrevious && !wasWall && isWall) {
+                scan(quadrant, depth + 1, startSlope, slope(depth, col));
             }
-            prevTile = tile;
+            hasPrevious = true;
+            wasWall = isWall;
         }
-        if(isFloor(quad, prevTile)) {
-            scan(quad, row.next());
-        }
-    }
-
-    public synchronized void reveal(Quadrant quad, Point p) {
-        int x = quad.transform(p).getX();
-        int y = quad.transform(p).getY();
-        markVisible(new Point(x, y));
-    }
-
-    public synchronized boolean isWall(Quadrant quad, Point p) {
-        if (p == null) {
-            return false;
-        }
-        int x = quad.transform(p).getX();
-        int y = quad.transform(p).getY();
-        return floorGen.isBlocking(new Point(x, y));
-    }
-
-    public synchronized boolean isFloor(Quadrant quad, Point p) {
-        if (p == null) {
-            return false;
+        if (hasPrevious && !wasWall) {
+            scan(quadrant, depth + 1, startSlope, endSlope);
         }
-        int x = quad.transform(p).getX();
-        int y = quad.transform(p).getY();
-        return !floorGen.isBlocking(new Point(x, y));
     }
 
-    public synchronized void markVisible(Point p) {
-        visiblePoints.add(p);
-    }
-
-
-
-    private class Quadrant {
-        Direction direction;
-        Point origin;
-        public Quadrant(Direction dir, Point origin) {
-            this.direction = dir;
-            this.origin = origin;
-        }
-
-        /**
-         *
-         * @param p A point relative to the origin of the quadrant
-         */
-        public Point transform(Point p) {
-            int row = p.getX();
-            int col = p.getY();
-            int x;
-            int y;
-            if(direction.equals(Direction.UP)) {
-                x = origin.getX() + col;
-                y = origin.getY() - row;
-            } else if(direction.equals(Direction.DOWN)) {
-                x = origin.getX() + col;
-                y = origin.getY() + row;
-            } else if(direction.equals(Direction.RIGHT)) {
-                x = origin.getX() + row;
-                y = origin.getY() + col;
-            } else {
-                x = origin.getX() - row;
-                y = origin.getY() + col;
+    /**
+     * Turns a row and column of a quadrant into the index of a tile. Tiles past the edge of the
+     * chunk are moved onto the edge.
+     */
+    private int transform(int quadrant, int row, int col) {
+        int x;
+        int y;
+        switch (quadrant) {
+            case 0 -> {
+                x = originX + col;
+                y = originY - row;
             }
-            if(x < 0) {
-                x = 0;
-            }else if( x >=  floorGen.getFloorArray().length) {
-                x = floorGen.getFloorArray().length - 1;
-            }
-
-            if(y < 0) {
-                y = 0;
-            }else if( y >= floorGen.getFloorArray()[0].length) {
-                y = floorGen.getFloorArray()[0].length - 1;
-            }
-
-            return new Point(x, y);
-        }
-    }
-
-
-    private class Row implements Iterable<Point> {
-        private int depth;
-        private double startSlope;
-        private double endSlope;
-
-
-        public Row (int depth, double startSlope, double endSlope) {
-            this.depth = depth;
-            this.startSlope = startSlope;
-            this.endSlope = endSlope;
-        }
-
-
-        public Row next() {
-            return new Row(this.depth + 1, this.startSlope, this.endSlope);
-        }
-
-        @Override
-        public Iterator<Point> iterator() {
-            return new RowIterator(depth, startSlope, endSlope);
-        }
-
-        private class RowIterator implements Iterator<Point>{
-            int minCol;
-            int maxCol;
-            int currCol;
-            public RowIterator(int depth, double startSlope, double endSlope) {
-                this.minCol = (int) roundTiesUp(depth * startSlope);
-                this.maxCol = (int) roundTiesDown(depth * endSlope);
-                this.currCol = minCol;
+            case 1 -> {
+                x = originX + col;
+                y = originY + row;
             }
-
-            @Override
-            public boolean hasNext() {
-                return currCol <= maxCol + 1;
+            case 2 -> {
+                x = originX + row;
+                y = originY + col;
             }
-
-            @Override
-            public Point next() {
-                Point p = new Point (depth, currCol);
-                currCol++;
-                return p;
+            default -> {
+                x = originX - row;
+                y = originY + col;
             }
         }
-
+        x = Math.max(0, Math.min(width - 1, x));
+        y = Math.max(0, Math.min(height - 1, y));
+        return index(x, y);
     }
 
-    public double slope (Point p) {
-        int rowDepth = p.getX();
-        int col = p.getY();
-        return ((double) (2 * col - 2)) / (2 * rowDepth);
+    private int index(int x, int y) {
+        return x * height + y;
     }
 
-    public boolean isSymmetric(Row row, Point tile) {
-        int col = tile.getY();
-        return (col >= row.depth * row.startSlope && col <= row.depth * row.endSlope);
-    }
-
-    public double roundTiesUp(double n) {
-        return Math.floor(n + 0.5);
-    }
-
-    public double roundTiesDown(double n) {
-        return Math.ceil(n - 0.5);
+    private static double slope(int rowDepth, int col) {
+        return ((double) (2 * col - 2)) / (2 * rowDepth);
     }
-
 }
@@ -3,6 +3,9 @@ package Core;
 import Core.DataStructures.GameStatus;
 import Core.Entities.Player;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 public class GameServices implements Serializable {
@@ -11,23 +14,31 @@ public class GameServices implements Serializable {
     private int playerRegenCount;
     private GameStatus gameStatus;
 
-    private static GameServices instance;
-    private GameServices() {}
+    GameServices() {}
 
-    public static GameServices getInstance() {
-        if(instance == null) {
-            instance = new GameServices();
-        }
-        return instance;
+    public void initialize(int regenCount, GameStatus status) {
+        this.playerRegenCount = regenCount;
+        gameStatus = status;
     }
 
-    public static void setInstance(GameServices gameServices) {
-        instance = gameServices;
+    /**
+     * Writes the services in the save format.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(playerRegenCount);
+        out.writeByte(gameStatus.ordinal());
+        player.write(out);
     }
 
-    public void initialize(int regenCount, GameStatus status) {
-        this.playerRegenCount = regenCount;
-        gameStatus = status;
+    /**
+     * Reads services written with write. The player still has to enter its chunk.
+     */
+    public static GameServices read(DataInputStream in) throws IOException {
+        GameServices services = new GameServices();
+        services.playerRegenCount = in.readInt();
+        services.gameStatus = GameStatus.values()[in.readByte()];
+        services.player = Player.read(in);
+        return services;
     }
 
     public Player getPlayer() {
@@ -0,0 +1,71 @@
+package Core;
+
+import Core.DataStructures.GameStatus;
+import Core.Entities.Player;
+import TileEngine.TERenderer;
+
+import java.io.File;
+
+/**
+ * Everything that belongs to one game: the player and the state of the game, the world with its
+ * random number generator and noise, the renderer that draws it and the file it is saved to.
+ * <p>
+ * The session is handed to whatever needs it instead of being reached through statics, so any
+ * number of sessions can be played in one JVM at once, each on a thread of its own. Only one of
+ * them should draw, since StdDraw only has one window.
+ */
+public class GameSession {
+    private final TERenderer renderer;
+    private final WorldEngine worldEngine;
+    private final File saveFile;
+    private GameServices services;
+
+    /**
+     * @param isRendered whether the game is drawn on the screen
+     * @param saveFile   the file the game is saved to and loaded from
+     */
+    public GameSession(boolean isRendered, File saveFile) {
+        this.saveFile = saveFile;
+        this.renderer = new TERenderer(isRendered);
+        renderer.initialize(Constants.VIEWPORT_WIDTH, Constants.VIEWPORT_HEIGHT,
+                Constants.STAGE_WIDTH, Constants.STAGE_HEIGHT, 0, Constants.GUI_HEIGHT);
+        this.services = new GameServices();
+        services.initialize(0, GameStatus.IN_PROGRESS);
+        this.worldEngine = new WorldEngine(this, -1, Constants.STAGE_WIDTH,
+                Constants.STAGE_HEIGHT);
+    }
+
+    /**
+     * Makes a session that is saved to Constants.SAVE_FILE.
+     */
+    public GameSession(boolean isRendered) {
+        this(isRendered, Constants.SAVE_FILE);
+    }
+
+    public TERenderer getRenderer() {
+        return renderer;
+    }
+
+    public WorldEngine getWorldEngine() {
+        return worldEngine;
+    }
+
+    public File getSaveFile() {
+        return saveFile;
+    }
+
+    public GameServices getServices() {
+        return services;
+    }
+
+    /**
+     * Replaces the state of the game, for when a saved game is loaded.
+     */
+    public void setServices(GameServices services) {
+        this.services = services;
+    }
+
+    public Player getPlayer() {
+        return services.getPlayer();
+    }
+}
@@ -12,7 +12,6 @@ import edu.princeton.cs.algs4.StdDraw;
 
 import java.awt.*;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,19 +20,30 @@ import java.util.concurrent.TimeUnit;
  */
 public class GameStateManager implements Serializable {
     private InputSource userInput;
-    
-    private WorldEngine worldEngine;
-    
-    public GameStateManager(InputSource userInput) {
+
+    private final transient GameSession session;
+    private final WorldEngine worldEngine;
+    private final transient TERenderer renderer;
+
+    private final transient AutosaveService autosave;
+
+    /**
+     * @param userInput where the keys of the game come from
+     * @param session   the game to play
+     */
+    public GameStateManager(InputSource userInput, GameSession session) {
         this.userInput = userInput;
-        this.worldEngine = new WorldEngine(-1, Constants.STAGE_WIDTH, Constants.STAGE_HEIGHT,
-                Constants.VIEWPORT_WIDTH, Constants.VIEWPORT_HEIGHT);
-        GameServices.getInstance().initialize(0, GameStatus.IN_PROGRESS);
+        this.session = session;
+        this.worldEngine = session.getWorldEngine();
+        this.renderer = session.getRenderer();
+        this.autosave = new AutosaveService(session.getSaveFile());
     }
     public void startNewDungeonGame() {
         if ((userInput instanceof StringInputSource)
                 && ((StringInputSource) userInput).peekNextKey() == 'l') {
-            Save.loadGame(Constants.SAVE_FILE, this);
+            //skip the l, so the keys after it are played in the loaded game
+            userInput.getNextKey();
+            Save.loadGame(session.getSaveFile(), this);
             startUserInput();
             return;
         }
@@ -46,7 +56,9 @@ public class GameStateManager implements Serializable {
     public void startNewOutsideGame() {
         if ((userInput instanceof StringInputSource)
                 && ((StringInputSource) userInput).peekNextKey() == 'l') {
-            Save.loadGame(Constants.SAVE_FILE, this);
+            //skip the l, so the keys after it are played in the loaded game
+            userInput.getNextKey();
+            Save.loadGame(session.getSaveFile(), this);
             startUserInput();
             return;
         }
@@ -56,80 +68,155 @@ public class GameStateManager implements Serializable {
         startUserInput();
     }
 
+    /**
+     * Runs the game loop. Every tick, all the input that has been typed since the last tick is
+     * handled, then the monsters take their turn in the order they are stored in the chunk, and
+     * the frame is drawn once. Keyboard games run at Constants.TICKS_PER_SECOND. Games played
+     * from a string handle one key per tick and never wait, so they play out the same way every
+     * time.
+     */
     public void startUserInput() {
-        TERenderer.getInstance().renderFrame(worldEngine.getCurrentChunk().getFloorArray(),
-                worldEngine.getCurrentChunk().getChunkData().getMobs());
-        ArrayList<Lamp> lamps = worldEngine.getCurrentChunk().getLamps();
-        while (GameServices.getInstance().getGameStatus() == GameStatus.IN_PROGRESS) {
-            //slowly increase player health and mana
-            if(GameServices.getInstance().getPlayerRegenCount() > 3) {
-                GameServices.getInstance().getPlayer().increaseMana(5);
-                GameServices.getInstance().getPlayer().increaseHealth(5);
-                GameServices.getInstance().setPlayerRegenCount(0);
-            } else {
-                GameServices.getInstance().setPlayerRegenCount(GameServices.getInstance().getPlayerRegenCount()+1);
-            }
-
-            char c = userInput.getNextKey();
-            //if there is no next key, then end the game - only pertains to interactWithInputString
-            if (c == Character.MIN_VALUE) {
+        //the menus have drawn over the screen
+        renderer.invalidate();
+        renderer.renderFrame(worldEngine.getCurrentChunk());
+        worldEngine.prefetchNearbyChunks();
+        boolean isRealTime = userInput instanceof KeyboardInputSource;
+        long tickLength = TimeUnit.SECONDS.toNanos(1) / Constants.TICKS_PER_SECOND;
+        long nextTick = System.nanoTime();
+        while (session.getServices().getGameStatus() == GameStatus.IN_PROGRESS) {
+            if (isRealTime) {
+                waitForTick(nextTick);
+                nextTick = Math.max(nextTick + tickLength, System.nanoTime());
+            } else if (!userInput.hasNextKey()) {
+                //if there is no next key, then end the game - only pertains to interactWithInputString
                 return;
             }
-            //Quit the game
-            if (c == ':' && Character.toLowerCase(userInput.getNextKey()) == 'q') {
-                new Save(this, GameServices.getInstance(), TERenderer.getInstance()).saveGame(Constants.SAVE_FILE);
-                return;
-            } else if (c == 'w' || c == 's' || c == 'a' || c == 'd') {
-                //If moving to next chunk
-                if(!worldEngine.getCurrentChunk().isInBounds(c)) {
-                    worldEngine.tileNextChunk(c);
-                } else {
-                    //move the player
-                    GameServices.getInstance().getPlayer().move(c);
-                    //move the monsters
-                    if (userInput instanceof KeyboardInputSource) {
-                        worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::move);
-                    }
-                    int x =
-                            worldEngine.getCurrentChunk().getChunkData().getChunkCenter().getX() - (Constants.STAGE_WIDTH/2) + GameServices.getInstance().getPlayer().getCurrentLocation().getX();
-                    int y =
-                            worldEngine.getCurrentChunk().getChunkData().getChunkCenter().getY() - (Constants.STAGE_HEIGHT/2) + GameServices.getInstance().getPlayer().getCurrentLocation().getY();
-                    System.out.println(new Point(x, y));
+            boolean isChanged = false;
+            boolean tookTurn = false;
+            //handle the input queued since the last tick
+            int keysLeft = isRealTime ? Integer.MAX_VALUE : 1;
+            while (keysLeft-- > 0 && userInput.hasNextKey()) {
+                TickAction action = handleKey(userInput.getNextKey());
+                if (action == TickAction.QUIT) {
+                    return;
                 }
-            } else if (c == 'n') {
-                //interact with the nearest object
-                GameServices.getInstance().getPlayer().interactWith(worldEngine.getCurrentChunk().getChunkData().getInteractables());
-            } else if (c == 'm') {
-                //make the player attack
-                GameServices.getInstance().getPlayer().attack();
-                //make the mobs next to the player attack
-                worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::attack);
-            } else if (c == 'p') {
-                //show the path from each mob to the player
-                worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::changeShowPath);
-            } else if (c == 'l') {
-                //turn all lamps off / on
-                lamps.forEach(Lamp::action);
+                isChanged = isChanged || action != TickAction.NONE;
+                tookTurn = tookTurn || action == TickAction.TURN;
+            }
+            //move the monsters
+            if (tookTurn && isRealTime) {
+                worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::move);
+            }
+            //move the projectiles. Games played from a string let them fly all the way at once
+            Chunk chunk = worldEngine.getCurrentChunk();
+            int steps = isRealTime ? Constants.PROJECTILE_STEPS_PER_TICK : Integer.MAX_VALUE;
+            while (steps-- > 0 && !chunk.getProjectiles().isEmpty()) {
+                chunk.stepProjectiles();
+                isChanged = true;
+            }
+            if (isChanged) {
+                renderer.renderFrame(worldEngine.getCurrentChunk());
+            }
+            if (isRealTime) {
+                autosave.tick(this);
             }
-            TERenderer.getInstance().renderFrame(worldEngine.getCurrentChunk().getFloorArray(),
-                    worldEngine.getCurrentChunk().getChunkData().getMobs());
         }
-        if(GameServices.getInstance().getGameStatus().equals(GameStatus.LOST)) {
+        //the end screens draw over the last frame, and nothing may draw over them
+        renderer.stop();
+        if(session.getServices().getGameStatus().equals(GameStatus.LOST)) {
             gameOverScreen();
 
-        }else if(GameServices.getInstance().getGameStatus() == GameStatus.WON) {
+        }else if(session.getServices().getGameStatus() == GameStatus.WON) {
             winScreen();
         }
 
     }
 
+    /**
+     * What handling a key did to the game.
+     */
+    private enum TickAction {
+        /**
+         * Nothing happened.
+         */
+        NONE,
+        /**
+         * Something changed, but the monsters do not get to move.
+         */
+        ACTION,
+        /**
+         * The player moved, so the monsters get to move.
+         */
+        TURN,
+        /**
+         * The game was saved and should stop.
+         */
+        QUIT
+    }
+
+    private TickAction handleKey(char c) {
+        if (c == Character.MIN_VALUE) {
+            return TickAction.NONE;
+        }
+        //slowly increase player health and mana
+        if(session.getServices().getPlayerRegenCount() > 3) {
+            session.getServices().getPlayer().increaseMana(5);
+            session.getServices().getPlayer().increaseHealth(5);
+            session.getServices().setPlayerRegenCount(0);
+        } else {
+            session.getServices().setPlayerRegenCount(session.getServices().getPlayerRegenCount()+1);
+        }
+
+        //Quit the game
+        if (c == ':' && Character.toLowerCase(userInput.getNextKey()) == 'q') {
+            autosave.saveNow(this);
+            return TickAction.QUIT;
+        } else if (c == 'w' || c == 's' || c == 'a' || c == 'd') {
+            //If moving to next chunk
+            if(!worldEngine.getCurrentChunk().isInBounds(c)) {
+                worldEngine.tileNextChunk(c);
+                return TickAction.ACTION;
+            }
+            //move the player
+            session.getServices().getPlayer().move(c);
+            worldEngine.prefetchNearbyChunks();
+            return TickAction.TURN;
+        } else if (c == 'n') {
+            //interact with the nearest object
+            session.getServices().getPlayer().interactWith(worldEngine.getCurrentChunk().getChunkData().getInteractables());
+        } else if (c == 'm') {
+            //make the player attack
+            session.getServices().getPlayer().attack();
+            //make the mobs next to the player attack
+            worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::attack);
+        } else if (c == 'p') {
+            //show the path from each mob to the player
+            worldEngine.getCurrentChunk().getChunkData().getMobs().forEach(Monster::changeShowPath);
+        } else if (c == 'l') {
+            //turn all lamps off / on
+            worldEngine.getCurrentChunk().getLamps().forEach(Lamp::action);
+        }
+        return TickAction.ACTION;
+    }
+
+    private void waitForTick(long tickStart) {
+        long wait = tickStart - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Shows the main menu. For use with keyboard input.
      */
     public void showMainMenu() {
-        if (TERenderer.getInstance().isOn()) {
-            float newWidth = (float)  TERenderer.getInstance().getViewportWidth() / 2;
-            float newHeight = (float) TERenderer.getInstance().getViewportHeight() / 2;
+        if (renderer.isOn()) {
+            float newWidth = (float)  renderer.getViewportWidth() / 2;
+            float newHeight = (float) renderer.getViewportHeight() / 2;
             //Set the background to black
             StdDraw.clear(Color.BLACK);
             //animate the title into position
@@ -167,7 +254,7 @@ public class GameStateManager implements Serializable {
                     enterSeedScreen();
                     return;
                 } else if (input == 'l') {
-                    Save.loadGame(Constants.SAVE_FILE, this);
+                    Save.loadGame(session.getSaveFile(), this);
                     startUserInput();
                     return;
                 } else if (input == 'q') {
@@ -182,9 +269,9 @@ public class GameStateManager implements Serializable {
      * user can indicate that their finished inputting the seed by pressing s.
      */
     private void enterSeedScreen() {
-        if (TERenderer.getInstance().isOn()) {
-            float newWidth = (float) TERenderer.getInstance().getViewportWidth() / 2;
-            float newHeight = (float) TERenderer.getInstance().getViewportHeight() / 2;
+        if (renderer.isOn()) {
+            float newWidth = (float) renderer.getViewportWidth() / 2;
+            float newHeight = (float) renderer.getViewportHeight() / 2;
             StdDraw.setPenColor(Color.WHITE);
             Font fontBig = new Font("Monaco", Font.BOLD, 80);
             StdDraw.setFont(fontBig);
@@ -213,20 +300,13 @@ public class GameStateManager implements Serializable {
     }
 
     private void gameOverScreen() {
-        Constants.EXECUTOR_SERVICE.shutdown();
-        try {
-            Constants.EXECUTOR_SERVICE.awaitTermination(1, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            System.out.println("Interrupted");
-        }
-
-        if (TERenderer.getInstance().isOn()) {
+        if (renderer.isOn()) {
             StdDraw.clear(Color.BLACK);
             StdDraw.clear(Color.BLACK);
             StdDraw.clear(Color.BLACK);
             StdDraw.show();
-            float newWidth = (float) TERenderer.getInstance().getViewportWidth() / 2;
-            float newHeight = (float) TERenderer.getInstance().getViewportHeight() / 2;
+            float newWidth = (float) renderer.getViewportWidth() / 2;
+            float newHeight = (float) renderer.getViewportHeight() / 2;
             StdDraw.setPenColor(Color.WHITE);
             Font font = new Font("Monaco", Font.BOLD, 60);
             StdDraw.setFont(font);
@@ -253,16 +333,10 @@ public class GameStateManager implements Serializable {
     }
 
     private void winScreen() {
-        Constants.EXECUTOR_SERVICE.shutdown();
-        try {
-            Constants.EXECUTOR_SERVICE.awaitTermination(1, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            System.out.println("Interrupted");
-        }
-        if (TERenderer.getInstance().isOn()) {
+        if (renderer.isOn()) {
             StdDraw.clear(Color.BLACK);
-            float newWidth = (float) TERenderer.getInstance().getViewportWidth() / 2;
-            float newHeight = (float) TERenderer.getInstance().getViewportHeight() / 2;
+            float newWidth = (float) renderer.getViewportWidth() / 2;
+            float newHeight = (float) renderer.getViewportHeight() / 2;
             StdDraw.setPenColor(Color.WHITE);
             Font fontBig = new Font("Monaco", Font.BOLD, 80);
             StdDraw.setFont(fontBig);
@@ -288,6 +362,10 @@ public class GameStateManager implements Serializable {
         }
     }
 
+    public GameSession getSession() {
+        return session;
+    }
+
     public WorldEngine getWorldEngine() {
         return worldEngine;
     }
@@ -299,8 +377,4 @@ public class GameStateManager implements Serializable {
     public void setUserInput(InputSource userInput) {
         this.userInput = userInput;
     }
-
-    public void setWorldEngine(WorldEngine worldEngine) {
-        this.worldEngine = worldEngine;
-    }
 }
@@ -3,6 +3,7 @@ package Core.Generators;
 import Core.Chunk;
 import Core.DataStructures.*;
 import Core.Entities.*;
+import Core.GameSession;
 import TileEngine.Tileset;
 
 import java.util.ArrayList;
@@ -15,8 +16,9 @@ public class DungeonGenerator extends Generator {
      */
     private final int maxRoomTries;
     
-    public DungeonGenerator(int maxRoomTries, int width, int height, ChunkData chunkData) {
-        super(width, height, chunkData);
+    public DungeonGenerator(GameSession session, int maxRoomTries, int width, int height,
+                            ChunkData chunkData) {
+        super(session, width, height, chunkData);
         this.maxRoomTries = maxRoomTries;
     }
 
@@ -32,7 +34,7 @@ public class DungeonGenerator extends Generator {
         //populate the monster with entities and getChunkData().getInteractables()
         populateMonsters();
         placeLamps();
-        return new Chunk(getMap(), getChunkData(), getRooms());
+        return buildChunk();
     }
 
     /**
@@ -79,15 +81,15 @@ public class DungeonGenerator extends Generator {
         for (int xPos = x; xPos < x + width; xPos++) {
             for (int yPos = y; yPos < y + height; yPos++) {
                 if (xPos == room.getX()) {
-                    setTileCopy(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
+                    setTile(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
                 } else if (xPos >= room.getX() + room.getWidth() - 1) {
-                    setTileCopy(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
+                    setTile(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
                 } else if (yPos == room.getY()) {
-                    setTileCopy(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
+                    setTile(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
                 } else if (yPos >= room.getY() + room.getHeight() - 1) {
-                    setTileCopy(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
+                    setTile(new Point(xPos, yPos), getChunkData().getTileMap().get("wall"));
                 } else {
-                    setTileCopy(new Point(xPos, yPos), getChunkData().getTileMap().get("floor"));
+                    setTile(new Point(xPos, yPos), getChunkData().getTileMap().get("floor"));
                 }
             }
         }
@@ -128,7 +130,7 @@ public class DungeonGenerator extends Generator {
                     prevDir = getDirection(start, possibleMoves.get(fastestPath));
                     start = possibleMoves.get(fastestPath);
                 }
-                setTileCopy(start, getChunkData().getTileMap().get("floor"));
+                setTile(start, getChunkData().getTileMap().get("floor"));
             }
         }
         buildPathWalls();
@@ -141,22 +143,22 @@ public class DungeonGenerator extends Generator {
         for (int x = 0; x < getMap().length; x++) {
             for (int y = 0; y < getMap()[0].length; y++) {
                 Point p = new Point(x, y);
-                if (getTile(p).equals(getChunkData().getTileMap().get("floor").copyOf())) {
+                if (getTile(p).equals(getChunkData().getTileMap().get("floor"))) {
                     Point left = p.addDirection(Direction.LEFT, 1);
                     Point up = p.addDirection(Direction.UP, 1);
                     Point right = p.addDirection(Direction.RIGHT, 1);
                     Point down = p.addDirection(Direction.DOWN, 1);
                     if (isInBounds(left) && getTile(left).equals(getChunkData().getTileMap().get("base"))) {
-                        setTileCopy(left, getChunkData().getTileMap().get("wall"));
+                        setTile(left, getChunkData().getTileMap().get("wall"));
                     }
                     if (isInBounds(right) && getTile(right).equals(getChunkData().getTileMap().get("base"))) {
-                        setTileCopy(right, getChunkData().getTileMap().get("wall"));
+                        setTile(right, getChunkData().getTileMap().get("wall"));
                     }
                     if (isInBounds(up) && getTile(up).equals(getChunkData().getTileMap().get("base"))) {
-                        setTileCopy(up, getChunkData().getTileMap().get("wall"));
+                        setTile(up, getChunkData().getTileMap().get("wall"));
                     }
                     if (isInBounds(down) && getTile(down).equals(getChunkData().getTileMap().get("base"))) {
-                        setTileCopy(down, getChunkData().getTileMap().get("wall"));
+                        setTile(down, getChunkData().getTileMap().get("wall"));
                     }
                 }
             }
@@ -181,27 +183,27 @@ public class DungeonGenerator extends Generator {
                         Point up2 = p.addDirection(Direction.UP, 2);
                         Point down1 = p.addDirection(Direction.DOWN, 1);
                         Point down2 = p.addDirection(Direction.DOWN, 2);
-                        if (isInBounds(p) && getTile(p).equals(getChunkData().getTileMap().get("floor").copyOf())) {
+                        if (isInBounds(p) && getTile(p).equals(getChunkData().getTileMap().get("floor"))) {
                             if ((isInBounds(left1) && getTile(left1).equals(getChunkData().getTileMap().get("wall")))
                                     && (!isInBounds(left2)
                                     || getTile(left2).equals(getChunkData().getTileMap().get("wall"))) && (isInBounds(right1)
                                     && getTile(right1).equals(getChunkData().getTileMap().get("wall"))) && (!isInBounds(right2)
                                     || getTile(right2).equals(getChunkData().getTileMap().get("wall")))) {
-                                setTileCopy(p, Tileset.LOCKED_DOOR);
-                                getChunkData().getInteractables().add(new Door(p));
+                                setTile(p, Tileset.LOCKED_DOOR);
+                                addInteractable(new Door(p));
                             } else if ((isInBounds(up1) && getTile(up1).equals(getChunkData().getTileMap().get("wall")))
                                     && (!isInBounds(up2)
                                     || getTile(up2).equals(getChunkData().getTileMap().get("wall"))) && (isInBounds(down1)
                                     && getTile(down1).equals(getChunkData().getTileMap().get("wall"))) && (!isInBounds(down2)
                                     || getTile(down2).equals(getChunkData().getTileMap().get("wall")))) {
-                                setTileCopy(p, Tileset.LOCKED_DOOR);
-                                getChunkData().getInteractables().add(new Door(p));
+                                setTile(p, Tileset.LOCKED_DOOR);
+                                addInteractable(new Door(p));
                             }
                         }
                     }
                 }
                 setTile(room.getCenter(), Tileset.TROPHY);
-                getChunkData().getInteractables().add(new Trophy(room.getCenter()));
+                addInteractable(new Trophy(room.getCenter()));
                 room.setLocked(true);
                 break;
             }
@@ -214,7 +216,7 @@ public class DungeonGenerator extends Generator {
         int count = 0;
         for (Room room : getRooms()) {
             if (!room.isLocked()) {
-                getChunkData().getInteractables().add(new Key(room.getCenter(), this));
+                addInteractable(new Key(room.getCenter(), this));
                 count++;
                 if (count > 2) {
                     break;
@@ -232,7 +234,7 @@ public class DungeonGenerator extends Generator {
             for (int y = 0; y < getMap()[0].length; y++) {
                 Point p = new Point(x, y);
                 if (getTile(p).equals(getChunkData().getTileMap().get("base")) && isUnnecessaryCornerTile(p)) {
-                    setTileCopy(p, getChunkData().getTileMap().get("wall"));
+                    setTile(p, getChunkData().getTileMap().get("wall"));
                 }
             }
         }
@@ -246,9 +248,9 @@ public class DungeonGenerator extends Generator {
             for (int y = 0; y < getMap()[0].length; y++) {
                 Point p = new Point(x, y);
                 if (getTile(p).equals(getChunkData().getTileMap().get("wall")) && isUnnecessaryWallTile(p)) {
-                    setTileCopy(p, getChunkData().getTileMap().get("floor"));
+                    setTile(p, getChunkData().getTileMap().get("floor"));
                 } else if (getTile(p).equals(getChunkData().getTileMap().get("base")) && isUnnecessaryBaseTile(p)) {
-                    setTileCopy(p, getChunkData().getTileMap().get("wall"));
+                    setTile(p, getChunkData().getTileMap().get("wall"));
                 }
             }
         }
@@ -262,8 +264,8 @@ public class DungeonGenerator extends Generator {
                 int x = getRng().nextInt(room.getX(), room.getX() + room.getWidth());
                 int y = getRng().nextInt(room.getY(), room.getY() + room.getHeight());
                 Point p = new Point(x, y);
-                if (getTile(p).equals(getChunkData().getTileMap().get("floor").copyOf())) {
-                    getChunkData().getMobs().add(new Monster( Tileset.MONSTER.copyOf(), p, 50));
+                if (getTile(p).equals(getChunkData().getTileMap().get("floor"))) {
+                    addMob(new Monster( Tileset.MONSTER, p, 50));
                     count++;
                 }
             }
@@ -278,9 +280,9 @@ public class DungeonGenerator extends Generator {
                 int x = getRng().nextInt(room.getX() + 2, room.getX() + room.getWidth() - 2);
                 int y = getRng().nextInt(room.getY() + 2, room.getY() + room.getHeight() - 2);
                 Point p = new Point(x, y);
-                if (getTile(p).equals(getChunkData().getTileMap().get("floor").copyOf())) {
-                    getChunkData().getInteractables().add(new Lamp(p, new ArrayList<>(getChunkData().getMobs())));
-                    setTileCopy(p, Tileset.LIGHT);
+                if (getTile(p).equals(getChunkData().getTileMap().get("floor"))) {
+                    addInteractable(new Lamp(p, new ArrayList<>(getNewMobs())));
+                    setTile(p, Tileset.LIGHT);
                     count++;
                 }
             }
@@ -301,7 +303,7 @@ public class DungeonGenerator extends Generator {
             if (isInBounds(newP) && getTile(newP).equals(getChunkData().getTileMap().get("base"))) {
                 isBoundaryWall = true;
             }
-            if (isInBounds(newP) && getTile(newP).equals(getChunkData().getTileMap().get("floor").copyOf())) {
+            if (isInBounds(newP) && getTile(newP).equals(getChunkData().getTileMap().get("floor"))) {
                 count++;
             }
         }
@@ -7,6 +7,7 @@ import Core.DataStructures.Point;
 import Core.DataStructures.Room;
 import Core.Entities.Interactable;
 import Core.Entities.Monster;
+import Core.GameSession;
 import TileEngine.TETile;
 
 import java.util.ArrayList;
@@ -29,7 +30,20 @@ public class Generator {
 
     private final ChunkData chunkData;
 
-    public Generator(int width, int height, ChunkData chunkData) {
+    /**
+     * The game the chunk is made for.
+     */
+    private final GameSession session;
+
+    /**
+     * The entities made for a chunk that has never been populated. They are only added to the
+     * ChunkData once the chunk is placed on the game thread, since generation can run on a worker.
+     */
+    private final List<Interactable> newInteractables = new ArrayList<>();
+    private final List<Monster> newMobs = new ArrayList<>();
+
+    public Generator(GameSession session, int width, int height, ChunkData chunkData) {
+        this.session = session;
         rng = new Random(chunkData.getChunkSeed());
         this.chunkData = chunkData;
         this.map = new TETile[width][height];
@@ -43,6 +57,14 @@ public class Generator {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Makes the chunk out of what has been generated. Its entities are placed later, by
+     * Chunk.placeEntities.
+     */
+    protected Chunk buildChunk() {
+        return new Chunk(session, map, chunkData, rooms, newInteractables, newMobs);
+    }
+
     /**
      * Fills the getMap() with a specific tile.
      * Should be used to create the background.
@@ -52,7 +74,7 @@ public class Generator {
     public void fillWith(TETile tile) {
         for (int x = 0; x < getMap().length; x++) {
             for (int y = 0; y < getMap()[0].length; y++) {
-                setTileCopy(new Point(x, y), tile);
+                setTile(new Point(x, y), tile);
             }
         }
     }
@@ -105,14 +127,37 @@ public class Generator {
      * @param p    the location to be changed
      * @param tile the tile to change the location to
      */
-    public void setTileCopy(Point p, TETile tile) {
-        getMap()[p.getX()][p.getY()] = tile.copyOf();
-    }
-
     public void setTile(Point p, TETile tile) {
         getMap()[p.getX()][p.getY()] = tile;
     }
 
+    /**
+     * Adds an interactable to the chunk, unless the chunk is being regenerated. The
+     * interactables of a regenerated chunk are kept in its ChunkData, so placing them again
+     * would duplicate them.
+     */
+    public void addInteractable(Interactable interactable) {
+        if (!chunkData.isPopulated()) {
+            newInteractables.add(interactable);
+        }
+    }
+
+    /**
+     * Adds a monster to the chunk, unless the chunk is being regenerated.
+     */
+    public void addMob(Monster mob) {
+        if (!chunkData.isPopulated()) {
+            newMobs.add(mob);
+        }
+    }
+
+    /**
+     * @return the monsters added to the chunk so far
+     */
+    public List<Monster> getNewMobs() {
+        return newMobs;
+    }
+
     public TETile[][] getMap() {
         return map;
     }
@@ -125,6 +170,10 @@ public class Generator {
         return chunkData;
     }
 
+    public GameSession getSession() {
+        return session;
+    }
+
     public Random getRng() {
         return rng;
     }
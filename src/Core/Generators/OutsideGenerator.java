@@ -5,9 +5,10 @@ import Core.Constants;
 import Core.DataStructures.ChunkData;
 import Core.DataStructures.Point;
 import Core.DataStructures.Room;
-import Core.DataStructures.Tile;
 import Core.Entities.Monster;
+import Core.GameSession;
 import TileEngine.TETile;
+import TileEngine.TileProperties;
 import TileEngine.Tileset;
 import Utils.SimplexNoise;
 
@@ -15,21 +16,25 @@ import java.awt.*;
 import java.lang.constant.Constable;
 
 public class OutsideGenerator extends Generator {
-    public OutsideGenerator(int width, int height, ChunkData chunkData) {
-        super(width, height, chunkData);
-        SimplexNoise.setSeed(chunkData.getChunkSeed());
+    private final SimplexNoise noise;
+
+    public OutsideGenerator(GameSession session, int width, int height, ChunkData chunkData) {
+        super(session, width, height, chunkData);
+        this.noise = SimplexNoise.forSeed(chunkData.getChunkSeed());
     }
 
     @Override
     public Chunk generate() {
-        for (int x = 0; x < getMap().length; x++) {
-            for (int y = 0; y < getMap()[0].length; y++) {
-                int halfX = getMap().length / 2;
-                int halfY = getMap()[0].length / 2;
-
-                int centerX = getChunkData().getChunkCenter().getX();
-                int centerY = getChunkData().getChunkCenter().getY();
-                double noise = SimplexNoise.sample(centerX - halfX + x, centerY - halfY + y, 7);
+        int width = getMap().length;
+        int height = getMap()[0].length;
+        int centerX = getChunkData().getChunkCenter().getX();
+        int centerY = getChunkData().getChunkCenter().getY();
+        double[] heights = new double[width * height];
+        this.noise.sampleRegion(centerX - width / 2, centerY - height / 2, width, height, 7,
+                heights);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                double noise = heights[x * height + y];
                 TETile tile;
                 if(noise < -0.5) {
                     tile = getChunkData().getTileMap().get("deep ocean");
@@ -59,14 +64,12 @@ public class OutsideGenerator extends Generator {
                     tile = getChunkData().getTileMap().get("ice");
                 }
 
-                setTileCopy(new Point(x, y), tile);
+                setTile(new Point(x, y), tile);
             }
         }
-        if(getChunkData().getMobs().isEmpty()) {
-            populateMonsters();
-        }
+        populateMonsters();
 
-        return new Chunk(getMap(), getChunkData(), getRooms());
+        return buildChunk();
     }
 
     private void populateMonsters() {
@@ -75,8 +78,8 @@ public class OutsideGenerator extends Generator {
             int x = getRng().nextInt(0, Constants.STAGE_WIDTH);
             int y = getRng().nextInt(0, Constants.STAGE_HEIGHT);
             Point p = new Point(x, y);
-            if (Tileset.reachableEntityTiles.contains(getTile(p))) {
-                getChunkData().getMobs().add(new Monster( Tileset.MONSTER.copyOf(), p, 50));
+            if (TileProperties.has(getTile(p), TileProperties.WALKABLE)) {
+                addMob(new Monster( Tileset.MONSTER, p, 50));
                 mobCount++;
             }
         }
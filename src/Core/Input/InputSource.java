@@ -4,4 +4,9 @@ import java.io.Serializable;
 
 public interface InputSource extends Serializable {
     char getNextKey();
+
+    /**
+     * @return whether a key is waiting to be read, so that getNextKey will not block
+     */
+    boolean hasNextKey();
 }
@@ -11,4 +11,9 @@ public class KeyboardInputSource implements InputSource {
             }
         }
     }
+
+    @Override
+    public boolean hasNextKey() {
+        return StdDraw.hasNextKeyTyped();
+    }
 }
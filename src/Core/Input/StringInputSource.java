@@ -18,6 +18,11 @@ public class StringInputSource implements InputSource {
         }
     }
 
+    @Override
+    public boolean hasNextKey() {
+        return index + 1 < input.length();
+    }
+
     public char peekNextKey() {
         try {
             return Character.toLowerCase(input.charAt(index + 1));
@@ -0,0 +1,223 @@
+package Core.Lighting;
+
+import Core.Chunk;
+import Core.DataStructures.Point;
+import Core.Entities.Monster;
+import Core.Entities.Player;
+import Core.FieldOfView;
+import TileEngine.TETile;
+import TileEngine.TileGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * How much light every tile of a chunk gets from its lamps.
+ * <p>
+ * The light each source gives is worked out once, from a field of view, and kept as the tiles it
+ * reaches plus how bright it makes each of them. The light of every source that is on is summed
+ * into one buffer, so turning a source on or off only adds or subtracts its own tiles. A source
+ * is only worked out again when a tile within its radius starts or stops blocking light.
+ */
+public class LightMap {
+    private final Chunk chunk;
+    private final int height;
+    /**
+     * The summed light of every source that is on, at x * height + y.
+     */
+    private final int[] light;
+    private final List<LightSource> sources = new ArrayList<>();
+
+    public LightMap(Chunk chunk) {
+        this.chunk = chunk;
+        this.height = chunk.getHeight();
+        this.light = new int[chunk.getWidth() * height];
+    }
+
+    /**
+     * Adds a source that is off. Nothing is worked out until it is first turned on.
+     *
+     * @param location where the light comes from
+     * @param radius   how far the light reaches
+     */
+    public LightSource addSource(Point location, int radius) {
+        synchronized (chunk) {
+            LightSource source = new LightSource(location, radius);
+            sources.add(source);
+            return source;
+        }
+    }
+
+    public void turnOn(LightSource source) {
+        synchronized (chunk) {
+            if (!source.isOn) {
+                source.isOn = true;
+                apply(source, 1);
+            }
+        }
+    }
+
+    public void turnOff(LightSource source) {
+        synchronized (chunk) {
+            if (source.isOn) {
+                source.isOn = false;
+                apply(source, -1);
+            }
+        }
+    }
+
+    /**
+     * @return how lit the given tile is, 0 being unlit
+     */
+    public int getShade(Point p) {
+        return Math.min(Byte.MAX_VALUE, light[p.getX() * height + p.getY()]);
+    }
+
+    /**
+     * Works out again the sources that can reach the given tile, for when it starts or stops
+     * blocking light, and shades the player and monsters whose light changed to match. Called by
+     * Chunk.setTile.
+     */
+    public void blockerChanged(int x, int y) {
+        synchronized (chunk) {
+            BitSet changed = null;
+            for (LightSource source : sources) {
+                if (!source.isWithinRadius(x, y) || source.cells == null) {
+                    continue;
+                }
+                if (source.isOn) {
+                    BitSet oldReach = source.reach;
+                    apply(source, -1);
+                    source.cells = null;
+                    apply(source, 1);
+                    if (changed == null) {
+                        changed = new BitSet(light.length);
+                    }
+                    changed.or(oldReach);
+                    changed.or(source.reach);
+                } else {
+                    source.cells = null;
+                }
+            }
+            if (changed != null) {
+                shadeEntities(changed);
+            }
+        }
+    }
+
+    /**
+     * Shades the player and monsters standing in the given tiles to match the light where they
+     * stand, the same way a lamp does for the tiles it reaches when it is turned on or off.
+     */
+    private void shadeEntities(BitSet tiles) {
+        Player player = chunk.getSession().getPlayer();
+        //the player is only in this chunk if it is the current one
+        if (player != null && chunk.getSession().getWorldEngine().getCurrentChunk() == chunk
+                && isIn(tiles, player.getCurrentLocation())) {
+            Point playerLoc = player.getCurrentLocation();
+            player.setTileCurrentlyOn(player.getTileCurrentlyOn().unlit().lighten(
+                    getShade(playerLoc)));
+        }
+        for (Monster mob : chunk.getChunkData().getMobs()) {
+            Point mobLoc = mob.getCurrentLoc();
+            if (isIn(tiles, mobLoc)) {
+                mob.setTileCurrentlyOn(mob.getTileCurrentlyOn().unlit().lighten(
+                        getShade(mobLoc)));
+            }
+        }
+    }
+
+    private boolean isIn(BitSet tiles, Point p) {
+        return chunk.isInBounds(p) && tiles.get(p.getX() * height + p.getY());
+    }
+
+    /**
+     * Adds the light of a source to the buffer, or takes it away if sign is -1, and shades the
+     * tiles it reaches to match.
+     */
+    private void apply(LightSource source, int sign) {
+        if (source.cells == null) {
+            compute(source);
+        }
+        TileGrid map = chunk.map();
+        for (int k = 0; k < source.cells.length; k++) {
+            int i = source.cells[k];
+            light[i] += sign * source.levels[k];
+            map.setShade(i / height, i % height, Math.min(Byte.MAX_VALUE, light[i]));
+        }
+    }
+
+    /**
+     * Finds the tiles a source reaches and how bright it makes them, brighter closer to it.
+     * Walls and the ground outside the rooms are never lit.
+     */
+    private void compute(LightSource source) {
+        BitSet fov = new FieldOfView(chunk, source.radius).computeFov(source.location);
+        TileGrid map = chunk.map();
+        TETile wall = chunk.getChunkData().getTileMap().get("wall");
+        TETile base = chunk.getChunkData().getTileMap().get("base");
+        int[] cells = new int[fov.cardinality()];
+        byte[] levels = new byte[cells.length];
+        int count = 0;
+        for (int i = fov.nextSetBit(0); i >= 0; i = fov.nextSetBit(i + 1)) {
+            int x = i / height;
+            int y = i % height;
+            if (map.get(x, y).equals(wall) || map.get(x, y).equals(base)) {
+                continue;
+            }
+            int distance = Math.abs(x - source.location.getX())
+                    + Math.abs(y - source.location.getY());
+            cells[count] = i;
+            levels[count] = (byte) Math.abs(2 * source.radius - distance);
+            count++;
+        }
+        source.reach = (BitSet) fov.clone();
+        source.cells = Arrays.copyOf(cells, count);
+        source.levels = Arrays.copyOf(levels, count);
+    }
+
+    /**
+     * Something that lights up the tiles around it, such as a lamp.
+     */
+    public class LightSource {
+        private final Point location;
+        private final int radius;
+        private boolean isOn;
+        /**
+         * Every tile the source can see, at x * height + y.
+         */
+        private BitSet reach;
+        /**
+         * The tiles the source lights and how much it lights each of them. Null until worked out.
+         */
+        private int[] cells;
+        private byte[] levels;
+
+        private LightSource(Point location, int radius) {
+            this.location = location;
+            this.radius = radius;
+        }
+
+        /**
+         * @return whether the source can see the given tile. Always false before the source has
+         *      first been turned on.
+         */
+        public boolean reaches(Point p) {
+            synchronized (chunk) {
+                return reach != null && chunk.isInBounds(p)
+                        && reach.get(p.getX() * height + p.getY());
+            }
+        }
+
+        public boolean isOn() {
+            return isOn;
+        }
+
+        private boolean isWithinRadius(int x, int y) {
+            return Math.abs(x - location.getX()) <= radius
+                    && Math.abs(y - location.getY()) <= radius;
+        }
+    }
+}
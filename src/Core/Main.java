@@ -2,10 +2,9 @@ package Core;
 
 import Core.Input.KeyboardInputSource;
 import Core.Input.StringInputSource;
-import TileEngine.TERenderer;
 import TileEngine.TETile;
 
-import java.util.concurrent.TimeUnit;
+import java.io.File;
 
 /**
  * This is the main entry point for the program. This class simply parses
@@ -15,12 +14,6 @@ import java.util.concurrent.TimeUnit;
 public class Main {
     public static void main(String[] args) {
         interactWithKeyboard();
-        Constants.EXECUTOR_SERVICE.shutdown();
-        try {
-            Constants.EXECUTOR_SERVICE.awaitTermination(1, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            throw new UnsupportedOperationException();
-        }
         System.exit(0);
     }
 
@@ -29,7 +22,8 @@ public class Main {
      * including inputs from the main menu.
      */
     public static void interactWithKeyboard() {
-        GameStateManager game = new GameStateManager(new KeyboardInputSource());
+        GameStateManager game = new GameStateManager(new KeyboardInputSource(),
+                new GameSession(true));
         game.showMainMenu();
     }
 
@@ -40,6 +34,30 @@ public class Main {
      * @return the 2D TETile[][] representing the state of the world
      */
     public static TETile[][] interactWithInputString(String input) {
+        return playInputString(input).getWorldEngine().getCurrentChunk().getFloorArray();
+    }
+
+    /**
+     * Plays a game from a string of keys without drawing it, saving to Constants.SAVE_FILE.
+     *
+     * @param input the keys to play
+     * @return the game, after the last key has been played
+     */
+    public static GameSession playInputString(String input) {
+        return playInputString(input, Constants.SAVE_FILE);
+    }
+
+    /**
+     * Plays a game from a string of keys without drawing it, like interactWithInputString. Every
+     * call plays a game of its own, so games can be played from several threads at once as long
+     * as each of them is given its own save file, since ":q" and "l" write and read it along with
+     * the journal and region files kept next to it.
+     *
+     * @param input    the keys to play
+     * @param saveFile the file the game is saved to and loaded from
+     * @return the game, after the last key has been played
+     */
+    public static GameSession playInputString(String input, File saveFile) {
         input = input.toLowerCase();
         int start = input.indexOf("n");
         int stop = input.indexOf("s");
@@ -52,9 +70,9 @@ public class Main {
             seed = Long.parseLong(input.substring(start + 1, stop));
             newInput = input.substring(stop + 1);
         }
-        GameStateManager game = new GameStateManager(new StringInputSource(newInput));
-        TERenderer.getInstance().setOn(false);
+        GameSession session = new GameSession(false, saveFile);
+        GameStateManager game = new GameStateManager(new StringInputSource(newInput), session);
         game.startNewDungeonGame();
-        return game.getWorldEngine().getCurrentChunk().getFloorArray();
+        return session;
     }
 }
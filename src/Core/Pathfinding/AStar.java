@@ -0,0 +1,249 @@
+package Core.Pathfinding;
+
+import Core.DataStructures.Point;
+import TileEngine.TileGrid;
+
+import java.util.Arrays;
+
+/**
+ * A* path finding over the tiles of a chunk.
+ * <p>
+ * Every location is a flat int node (x * height + y), and all the bookkeeping lives in arrays
+ * that are sized to the chunk once and reused between searches. Instead of clearing the arrays
+ * before every search, each search gets a new generation number, and an entry only counts if
+ * it was stamped with the current generation. The open set is a binary heap of node ids that
+ * supports decreasing a node's key in place, so nothing is allocated while searching.
+ */
+public class AStar {
+    private static final ThreadLocal<AStar> ENGINES = new ThreadLocal<>();
+
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {1, -1, 0, 0};
+
+    private final int width;
+    private final int height;
+
+    /**
+     * Generation in which the node was last reached. g costs and parents are only valid when
+     * this matches the current generation.
+     */
+    private final int[] seen;
+    /**
+     * Generation in which the node was last taken out of the open set.
+     */
+    private final int[] closed;
+    private final int[] gCost;
+    private final int[] parent;
+    /**
+     * Position of the node in the heap, or -1 if it is not in the heap.
+     */
+    private final int[] heapIndex;
+    private final int[] heap;
+    private final int[] heapKeys;
+    private int heapSize;
+    private int generation;
+
+    public AStar(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int size = width * height;
+        this.seen = new int[size];
+        this.closed = new int[size];
+        this.gCost = new int[size];
+        this.parent = new int[size];
+        this.heapIndex = new int[size];
+        this.heap = new int[size];
+        this.heapKeys = new int[size];
+    }
+
+    /**
+     * Gets the engine of the current thread for chunks of the given size. Engines are reused, so
+     * a thread only ever allocates one set of arrays per chunk size.
+     */
+    public static AStar forSize(int width, int height) {
+        AStar engine = ENGINES.get();
+        if (engine == null || engine.width != width || engine.height != height) {
+            engine = new AStar(width, height);
+            ENGINES.set(engine);
+        }
+        return engine;
+    }
+
+    /**
+     * Finds the shortest path from the start to the goal, only moving through tiles that have
+     * the given TileProperties flags. The goal tile itself also has to have the flags, the start
+     * tile does not.
+     * <p>
+     * If the search expands more than maxExpansions nodes before reaching the goal, it gives up
+     * and returns the path to the node it found that is closest to the goal.
+     *
+     * @param grid          the tiles to search
+     * @param passableFlags the flags a tile needs for the path to go through it
+     * @param start         where the path starts
+     * @param goal          where the path should end
+     * @param maxExpansions the most nodes that will be expanded
+     * @return the locations along the path packed with Point.pack, not including the start, or
+     *      null if the goal cannot be reached at all
+     */
+    public int[] findPath(TileGrid grid, int passableFlags, Point start, Point goal,
+                          int maxExpansions) {
+        int startNode = node(start.getX(), start.getY());
+        int goalX = goal.getX();
+        int goalY = goal.getY();
+        nextGeneration();
+
+        seen[startNode] = generation;
+        gCost[startNode] = 0;
+        parent[startNode] = -1;
+        push(startNode, key(0, heuristic(start.getX(), start.getY(), goalX, goalY)));
+
+        int best = startNode;
+        int bestH = heuristic(start.getX(), start.getY(), goalX, goalY);
+        int expansions = 0;
+        while (heapSize > 0) {
+            int current = pop();
+            int x = current / height;
+            int y = current % height;
+            if (x == goalX && y == goalY) {
+                return buildPath(current);
+            }
+            closed[current] = generation;
+            int h = heuristic(x, y, goalX, goalY);
+            if (h < bestH || (h == bestH && gCost[current] < gCost[best])) {
+                best = current;
+                bestH = h;
+            }
+            if (++expansions > maxExpansions) {
+                return buildPath(best);
+            }
+            int g = gCost[current] + 1;
+            for (int i = 0; i < DX.length; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height
+                        || (grid.getFlags(nx, ny) & passableFlags) != passableFlags) {
+                    continue;
+                }
+                int next = node(nx, ny);
+                if (closed[next] == generation) {
+                    continue;
+                }
+                if (seen[next] != generation) {
+                    seen[next] = generation;
+                    gCost[next] = g;
+                    parent[next] = current;
+                    push(next, key(g, heuristic(nx, ny, goalX, goalY)));
+                } else if (g < gCost[next]) {
+                    gCost[next] = g;
+                    parent[next] = current;
+                    decreaseKey(next, key(g, heuristic(nx, ny, goalX, goalY)));
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] buildPath(int end) {
+        int length = 0;
+        for (int n = end; parent[n] != -1; n = parent[n]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int n = end; parent[n] != -1; n = parent[n]) {
+            path[--length] = Point.pack(n / height, n % height);
+        }
+        return path;
+    }
+
+    private void nextGeneration() {
+        heapSize = 0;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 0;
+        }
+        generation++;
+    }
+
+    private int node(int x, int y) {
+        return x * height + y;
+    }
+
+    private static int heuristic(int x, int y, int goalX, int goalY) {
+        return Math.abs(x - goalX) + Math.abs(y - goalY);
+    }
+
+    /**
+     * Orders nodes by f cost, breaking ties in favour of the node closer to the goal.
+     */
+    private static int key(int g, int h) {
+        return ((g + h) << 16) | h;
+    }
+
+    private void push(int node, int key) {
+        int i = heapSize++;
+        heap[i] = node;
+        heapKeys[i] = key;
+        heapIndex[node] = i;
+        siftUp(i);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapKeys[0] = heapKeys[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void decreaseKey(int node, int key) {
+        int i = heapIndex[node];
+        heapKeys[i] = key;
+        siftUp(i);
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        int key = heapKeys[i];
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapKeys[i] = heapKeys[up];
+            heapIndex[heap[i]] = i;
+            i = up;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+        heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        int key = heapKeys[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+        heapIndex[node] = i;
+    }
+}
@@ -0,0 +1,172 @@
+package Core.Pathfinding;
+
+import Core.DataStructures.Point;
+import TileEngine.TileGrid;
+import TileEngine.TileProperties;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Distance from every tile near a target to that target, shared by everything that wants to
+ * walk toward it.
+ * <p>
+ * The field is filled in with one breadth-first search from the target that stops after a given
+ * radius, so its cost does not depend on how many monsters use it. Monsters walk downhill by
+ * stepping to the neighbour with the lowest distance. The field is only searched again when the
+ * target moves or a tile changes whether it can be walked through.
+ * <p>
+ * When the target moves, the distance of almost every tile in the field changes, so the field
+ * cannot be patched up for less than searching again. Instead a search only goes as far as it has
+ * to: it stops as soon as it has reached every goal, the tiles of whatever is walking toward the
+ * target. A breadth-first search reaches the tiles in order of distance, so by then every tile
+ * closer to the target than the farthest goal has its distance, which is every tile a goal can
+ * step to or walk down through. Goals that are moving toward the target stay inside that area.
+ */
+public class FlowField {
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {1, -1, 0, 0};
+
+    private final int width;
+    private final int height;
+    private final int radius;
+
+    private final short[] distance;
+    /**
+     * Generation in which the distance of a node was set. Distances from older generations are
+     * treated as unreached.
+     */
+    private final int[] stamp;
+    /**
+     * Generation in which a node was made a goal of the search.
+     */
+    private final int[] goalStamp;
+    private final int[] queue;
+    private int generation;
+
+    private int targetX = -1;
+    private int targetY = -1;
+    private boolean isValid = false;
+    /**
+     * Whether the last search went all the way to the radius instead of stopping at its goals.
+     */
+    private boolean isComplete = false;
+
+    public FlowField(int width, int height, int radius) {
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+        this.distance = new short[width * height];
+        this.stamp = new int[width * height];
+        this.goalStamp = new int[width * height];
+        this.queue = new int[width * height];
+    }
+
+    /**
+     * Makes sure the field leads to the given target, searching again only if the target has
+     * moved, the field has been invalidated or a goal has moved out of the searched tiles since
+     * the last search.
+     *
+     * @param grid   the tiles to search through
+     * @param target where everything should walk to
+     * @param goals  where the things walking to the target are. Goals further than the radius
+     *               from the target are never in the field and are left out.
+     */
+    public void update(TileGrid grid, Point target, Collection<Point> goals) {
+        if (isValid && target.getX() == targetX && target.getY() == targetY
+                && (isComplete || unreachedGoals(target, goals) == 0)) {
+            return;
+        }
+        targetX = target.getX();
+        targetY = target.getY();
+        isValid = true;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(goalStamp, 0);
+            generation = 0;
+        }
+        generation++;
+        int goalsLeft = 0;
+        for (Point goal : goals) {
+            int x = goal.getX();
+            int y = goal.getY();
+            if (x >= 0 && y >= 0 && x < width && y < height
+                    && goal.manhattanDistance(target) <= radius && goalStamp[x * height + y] != generation) {
+                goalStamp[x * height + y] = generation;
+                goalsLeft++;
+            }
+        }
+
+        int head = 0;
+        int tail = 0;
+        int start = targetX * height + targetY;
+        stamp[start] = generation;
+        distance[start] = 0;
+        queue[tail++] = start;
+        isComplete = false;
+        while (head < tail) {
+            int current = queue[head++];
+            int nextDistance = distance[current] + 1;
+            if (nextDistance > radius) {
+                continue;
+            }
+            int x = current / height;
+            int y = current % height;
+            for (int i = 0; i < DX.length; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int next = nx * height + ny;
+                if (stamp[next] == generation
+                        || (grid.getFlags(nx, ny) & TileProperties.PATHABLE) == 0) {
+                    continue;
+                }
+                stamp[next] = generation;
+                distance[next] = (short) nextDistance;
+                queue[tail++] = next;
+                if (goalStamp[next] == generation && --goalsLeft == 0) {
+                    return;
+                }
+            }
+        }
+        isComplete = true;
+    }
+
+    /**
+     * @return how many of the goals within the radius of the target are not in the field
+     */
+    private int unreachedGoals(Point target, Collection<Point> goals) {
+        int count = 0;
+        for (Point goal : goals) {
+            if (goal.manhattanDistance(target) <= radius && distanceAt(goal) == -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Forces the next update to search again, for when tiles inside the field have changed.
+     */
+    public void invalidate() {
+        isValid = false;
+    }
+
+    /**
+     * @return the number of steps from the given location to the target, or -1 if the location
+     *      is not in the field
+     */
+    public int distanceAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        int node = x * height + y;
+        return generation != 0 && stamp[node] == generation ? distance[node] : -1;
+    }
+
+    public int distanceAt(Point p) {
+        return distanceAt(p.getX(), p.getY());
+    }
+}
@@ -0,0 +1,68 @@
+package Core;
+
+import Core.DataStructures.Point;
+
+import java.util.BitSet;
+
+/**
+ * What the player can see in a chunk, for fog of war.
+ * <p>
+ * The visible tiles are a field of view around the player. They are only worked out again when
+ * the player has moved or a tile has started or stopped blocking light, such as a door opening.
+ * Every tile that has been visible is added to the explored tiles of the chunk, which are kept in
+ * its ChunkData so they are not lost when the chunk is regenerated.
+ */
+public class PlayerVision {
+    private final Chunk chunk;
+    private final FieldOfView fov;
+    private final BitSet visible;
+    private Point origin;
+    private boolean isStale = true;
+
+    public PlayerVision(Chunk chunk) {
+        this.chunk = chunk;
+        this.fov = new FieldOfView(chunk, Constants.PLAYER_SIGHT_RADIUS);
+        this.visible = new BitSet(chunk.getWidth() * chunk.getHeight());
+    }
+
+    /**
+     * Works out what can be seen from the given location, unless nothing has changed since the
+     * last time.
+     */
+    public void update(Point playerLoc) {
+        if (!isStale && playerLoc.equals(origin)) {
+            return;
+        }
+        visible.clear();
+        visible.or(fov.computeFov(playerLoc));
+        chunk.getChunkData().getExplored().or(visible);
+        origin = playerLoc;
+        isStale = false;
+    }
+
+    /**
+     * Makes the next update work out the visible tiles again. Called by Chunk.setTile when a tile
+     * starts or stops blocking light.
+     */
+    public void invalidate() {
+        isStale = true;
+    }
+
+    /**
+     * @return the tiles the player can see, set at x * height + y
+     */
+    public BitSet getVisible() {
+        return visible;
+    }
+
+    /**
+     * @return every tile the player has seen in the chunk, set at x * height + y
+     */
+    public BitSet getExplored() {
+        return chunk.getChunkData().getExplored();
+    }
+
+    public boolean isVisible(Point p) {
+        return visible.get(p.getX() * chunk.getHeight() + p.getY());
+    }
+}
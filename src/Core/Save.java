@@ -1,75 +1,98 @@
 package Core;
 
-import TileEngine.TERenderer;
+import Core.Storage.SaveFormat;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
-public record Save(GameStateManager gameManager, GameServices gameServices,
-                   TERenderer renderer) implements Serializable {
+public record Save(GameStateManager gameManager, GameServices gameServices) {
 
     /**
-     * Loads the game from the save file.
+     * Loads the game from the save file. Anything autosaved after the last checkpoint is
+     * recovered first.
      *
      * @param file the save file to load the game from.
      */
     public static void loadGame(File file, GameStateManager manager) {
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-            Save load = (Save) in.readObject();
-            //Services
-            GameServices.setInstance(load.gameServices());
-            TERenderer.setInstance(load.renderer());
-
-            //World Engine variables
-            manager.setWorldEngine(load.gameManager().getWorldEngine());
-            manager.setUserInput(load.gameManager().getUserInput());
+        try {
+            AutosaveService.recover(file);
+            SaveFormat.read(Files.newInputStream(file.toPath()), in -> {
+                //World Engine variables
+                manager.getWorldEngine().read(in);
+                //Services
+                manager.getSession().setServices(GameServices.read(in));
+                return null;
+            });
+            manager.getWorldEngine().loadChunks(chunkDirectory(file));
 
-            TERenderer.getInstance().renderFrame(manager.getWorldEngine().getCurrentChunk().getFloorArray(),
-                    manager.getWorldEngine().getCurrentChunk().getChunkData().getMobs());
-        } catch (IOException | ClassCastException
-                 | ClassNotFoundException exception) {
+            manager.getSession().getRenderer().renderFrame(
+                    manager.getWorldEngine().getCurrentChunk());
+        } catch (IOException | IndexOutOfBoundsException exception) {
             throw new IllegalArgumentException(exception);
         }
     }
 
     /**
-     * Saves the game to the specified file.
+     * Encodes everything in the game except the chunks. Has to be called from the game thread.
      *
-     * @param file The file location where to save the game.
+     * @return the contents of the save file
      */
-    public void saveGame(File file) {
-        writeContents(file, (Object) serialize());
-    }
-
-    private void writeContents(File file, Object... contents) {
-        try (BufferedOutputStream str =
-                     new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
-            if (file.isDirectory()) {
-                throw new IllegalArgumentException("cannot overwrite directory");
-            }
-            for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
-            }
-        } catch (IOException | ClassCastException excp) {
-
-            throw new IllegalArgumentException(excp);
+    public byte[] encode() {
+        try {
+            return SaveFormat.encode(Constants.COMPRESS_SAVES, out -> {
+                gameManager.getWorldEngine().write(out);
+                gameServices.write(out);
+            });
+        } catch (IOException exception) {
+            throw new IllegalArgumentException(exception);
         }
     }
 
-    private byte[] serialize() {
+    /**
+     * Replaces the contents of a file in one step, so the file is never left half written. The
+     * contents are written to a temporary file next to it, which is then renamed over it.
+     *
+     * @param file     the file to replace
+     * @param contents the new contents of the file
+     */
+    static void writeAtomically(File file, byte[] contents) throws IOException {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("cannot overwrite directory");
+        }
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            out.write(contents);
+            out.getFD().sync();
+        }
         try {
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            ObjectOutputStream objectStream = new ObjectOutputStream(stream);
-            objectStream.writeObject(this);
-            objectStream.close();
-            return stream.toByteArray();
-        } catch (IOException excp) {
-            throw new IllegalArgumentException(excp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
+
+    /**
+     * The chunks of a save are kept in region files in a directory next to the save file.
+     *
+     * @param file the save file
+     * @return the directory the chunks of the save are kept in
+     */
+    static File chunkDirectory(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + "-chunks");
+    }
+
+    /**
+     * Autosaves made since the last checkpoint are appended to a journal next to the save file.
+     *
+     * @param file the save file
+     * @return the journal of the save
+     */
+    static File journalFile(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".journal");
+    }
 }
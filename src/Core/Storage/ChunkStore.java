@@ -0,0 +1,165 @@
+package Core.Storage;
+
+import Core.Constants;
+import Core.DataStructures.ChunkData;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saves and loads the data of single chunks, spread over region files in a directory.
+ * <p>
+ * Chunks are addressed by their ChunkData.getChunkKey, and every chunk is stored as its own
+ * SaveFormat record. Region files are opened the first time
+ * one of their chunks is needed and kept open until the store is closed.
+ */
+public class ChunkStore implements Closeable {
+    private final File directory;
+    private final Map<Long, RegionFile> regions = new HashMap<>();
+
+    private ChunkStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the chunks saved in the given directory.
+     */
+    public static ChunkStore open(File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create " + directory);
+        }
+        return new ChunkStore(directory);
+    }
+
+    /**
+     * Opens the given directory as an empty store, deleting any region files already in it.
+     */
+    public static ChunkStore create(File directory) {
+        ChunkStore store = open(directory);
+        store.clear();
+        return store;
+    }
+
+    /**
+     * Deletes every region file in the store's directory, leaving the store empty.
+     */
+    public synchronized void clear() {
+        try {
+            close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".region"));
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    throw new IllegalArgumentException("Cannot delete " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the data of the chunk with the given key.
+     *
+     * @param chunkKey the key of the chunk
+     * @return the data of the chunk, or null if it was never saved
+     */
+    public synchronized ChunkData load(long chunkKey) {
+        try {
+            byte[] bytes = region(chunkKey).read(localX(chunkKey), localY(chunkKey));
+            if (bytes == null) {
+                return null;
+            }
+            return SaveFormat.decode(bytes, ChunkData::read);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Saves the data of a chunk, replacing what was saved for it before.
+     */
+    public void save(ChunkData data) {
+        write(data.getChunkKey(), encode(data));
+    }
+
+    /**
+     * Saves a chunk that was already encoded with encode.
+     *
+     * @param chunkKey the key of the chunk
+     * @param record   the encoded chunk
+     */
+    public synchronized void write(long chunkKey, byte[] record) {
+        try {
+            region(chunkKey).write(localX(chunkKey), localY(chunkKey), record);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Encodes the data of a chunk the way it is stored in a region.
+     */
+    public static byte[] encode(ChunkData data) {
+        try {
+            return SaveFormat.encode(Constants.COMPRESS_SAVES, data::write);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Makes sure every chunk saved so far is on disk.
+     */
+    public synchronized void flush() {
+        try {
+            for (RegionFile region : regions.values()) {
+                region.flush();
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (RegionFile region : regions.values()) {
+            region.close();
+        }
+        regions.clear();
+    }
+
+    private RegionFile region(long chunkKey) throws IOException {
+        int regionX = Math.floorDiv(chunkX(chunkKey), RegionFile.REGION_SIZE);
+        int regionY = Math.floorDiv(chunkY(chunkKey), RegionFile.REGION_SIZE);
+        long regionKey = ((long) regionX << 32) | (regionY & 0xFFFFFFFFL);
+        RegionFile region = regions.get(regionKey);
+        if (region == null) {
+            region = new RegionFile(new File(directory, "r." + regionX + "." + regionY
+                    + ".region"));
+            regions.put(regionKey, region);
+        }
+        return region;
+    }
+
+    private static int chunkX(long chunkKey) {
+        return (int) (chunkKey >> 32);
+    }
+
+    private static int chunkY(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    private static int localX(long chunkKey) {
+        return Math.floorMod(chunkX(chunkKey), RegionFile.REGION_SIZE);
+    }
+
+    private static int localY(long chunkKey) {
+        return Math.floorMod(chunkY(chunkKey), RegionFile.REGION_SIZE);
+    }
+}
@@ -0,0 +1,128 @@
+package Core.Storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A file that holds the saved data of a square region of chunks.
+ * <p>
+ * The file is split into sectors of SECTOR_SIZE bytes. The first sector is an offset table with
+ * one entry per chunk in the region: the sector the chunk starts at, its length in bytes and a
+ * checksum of its bytes, so a record that was only partly written is noticed when it is read. An
+ * entry of zeros means the chunk has not been saved. The table is memory mapped, so looking up a
+ * chunk does not read the rest of the file, and every chunk can be read and written on its own.
+ * <p>
+ * A chunk that grows past the sectors it was given is moved to the end of the file. The sectors
+ * it used before are not reused.
+ */
+public class RegionFile implements Closeable {
+    /**
+     * The width and height of a region, in chunks.
+     */
+    public static final int REGION_SIZE = 16;
+    public static final int SECTOR_SIZE = 4096;
+
+    private static final int ENTRY_SIZE = 3 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer offsets;
+    private int sectorCount;
+
+    public RegionFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.offsets = channel.map(FileChannel.MapMode.READ_WRITE, 0, SECTOR_SIZE);
+        this.sectorCount = (int) Math.max(1,
+                (channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+    }
+
+    /**
+     * Reads the data of a chunk.
+     *
+     * @param localX the x coordinate of the chunk inside the region
+     * @param localY the y coordinate of the chunk inside the region
+     * @return the data of the chunk, or null if it was never saved
+     * @throws IOException if the saved data does not match its checksum
+     */
+    public synchronized byte[] read(int localX, int localY) throws IOException {
+        int entry = entry(localX, localY);
+        int sector = offsets.getInt(entry);
+        int length = offsets.getInt(entry + Integer.BYTES);
+        int expected = offsets.getInt(entry + 2 * Integer.BYTES);
+        if (sector == 0) {
+            return null;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                (long) sector * SECTOR_SIZE, length);
+        byte[] data = new byte[length];
+        buffer.get(data);
+        if (checksum(data) != expected) {
+            throw new IOException("Chunk (" + localX + ", " + localY + ") is damaged.");
+        }
+        return data;
+    }
+
+    /**
+     * Writes the data of a chunk, replacing what was saved for it before.
+     *
+     * @param localX the x coordinate of the chunk inside the region
+     * @param localY the y coordinate of the chunk inside the region
+     * @param data   the data of the chunk
+     */
+    public synchronized void write(int localX, int localY, byte[] data) throws IOException {
+        int entry = entry(localX, localY);
+        int sector = offsets.getInt(entry);
+        int oldSectors = sectorsFor(offsets.getInt(entry + Integer.BYTES));
+        int newSectors = sectorsFor(data.length);
+        if (sector == 0 || newSectors > oldSectors) {
+            sector = sectorCount;
+            sectorCount += newSectors;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = (long) sector * SECTOR_SIZE;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        offsets.putInt(entry, sector);
+        offsets.putInt(entry + Integer.BYTES, data.length);
+        offsets.putInt(entry + 2 * Integer.BYTES, checksum(data));
+    }
+
+    /**
+     * Makes sure everything written so far is on disk.
+     */
+    public synchronized void flush() throws IOException {
+        offsets.force();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private static int entry(int localX, int localY) {
+        if (localX < 0 || localY < 0 || localX >= REGION_SIZE || localY >= REGION_SIZE) {
+            throw new IllegalArgumentException("Chunk (" + localX + ", " + localY
+                    + ") is not inside a region.");
+        }
+        return (localX * REGION_SIZE + localY) * ENTRY_SIZE;
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 checksum = new CRC32();
+        checksum.update(data);
+        return (int) checksum.getValue();
+    }
+
+    private static int sectorsFor(int length) {
+        return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+}
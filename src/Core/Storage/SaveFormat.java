@@ -0,0 +1,166 @@
+package Core.Storage;
+
+import Core.DataStructures.Point;
+import Core.Entities.Door;
+import Core.Entities.Interactable;
+import Core.Entities.Key;
+import Core.Entities.Lamp;
+import Core.Entities.Monster;
+import Core.Entities.Trophy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The binary format that games and chunks are saved in.
+ * <p>
+ * Every record starts with a header: the int MAGIC, a short format version and a byte of flags.
+ * If the COMPRESSED flag is set, everything after the header is gzipped. The body is written
+ * with DataOutputStream by the classes being saved, field by field, so only the state that cannot
+ * be rebuilt from a seed is stored.
+ */
+public final class SaveFormat {
+    public static final int MAGIC = 0x554E4244;
+    /**
+     * The version written by this code. Bump it whenever the body of a record changes.
+     */
+    public static final short VERSION = 1;
+    private static final int COMPRESSED = 1;
+
+    private static final byte DOOR = 0;
+    private static final byte KEY = 1;
+    private static final byte LAMP = 2;
+    private static final byte TROPHY = 3;
+
+    private SaveFormat() {
+    }
+
+    /**
+     * Writes the body of a record.
+     */
+    public interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the body of a record.
+     */
+    public interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Writes a record, header included, to the given stream. The stream is closed afterwards.
+     *
+     * @param stream   where the record is written to
+     * @param compress whether the body should be gzipped
+     * @param writer   writes the body
+     */
+    public static void write(OutputStream stream, boolean compress, Writer writer)
+            throws IOException {
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(stream));
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeByte(compress ? COMPRESSED : 0);
+        try (DataOutputStream out = compress
+                ? new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(header)))
+                : header) {
+            writer.write(out);
+        }
+    }
+
+    /**
+     * Reads a record, header included, from the given stream. The stream is closed afterwards.
+     *
+     * @param stream where the record is read from
+     * @param reader reads the body
+     * @return what the reader read
+     */
+    public static <T> T read(InputStream stream, Reader<T> reader) throws IOException {
+        DataInputStream header = new DataInputStream(new BufferedInputStream(stream));
+        if (header.readInt() != MAGIC) {
+            header.close();
+            throw new IllegalArgumentException("Not a save file.");
+        }
+        short version = header.readShort();
+        if (version > VERSION) {
+            header.close();
+            throw new IllegalArgumentException("Save version " + version
+                    + " is newer than this game.");
+        }
+        int flags = header.readByte();
+        try (DataInputStream in = (flags & COMPRESSED) != 0
+                ? new DataInputStream(new BufferedInputStream(new GZIPInputStream(header)))
+                : header) {
+            return reader.read(in);
+        }
+    }
+
+    public static byte[] encode(boolean compress, Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes, compress, writer);
+        return bytes.toByteArray();
+    }
+
+    public static <T> T decode(byte[] bytes, Reader<T> reader) throws IOException {
+        return read(new ByteArrayInputStream(bytes), reader);
+    }
+
+    public static void writePoint(DataOutputStream out, Point p) throws IOException {
+        out.writeInt(p.getX());
+        out.writeInt(p.getY());
+    }
+
+    public static Point readPoint(DataInputStream in) throws IOException {
+        return new Point(in.readInt(), in.readInt());
+    }
+
+    /**
+     * Writes an interactable, tagged with its type.
+     */
+    public static void writeInteractable(DataOutputStream out, Interactable interactable)
+            throws IOException {
+        if (interactable instanceof Door door) {
+            out.writeByte(DOOR);
+            door.write(out);
+        } else if (interactable instanceof Key key) {
+            out.writeByte(KEY);
+            key.write(out);
+        } else if (interactable instanceof Lamp lamp) {
+            out.writeByte(LAMP);
+            lamp.write(out);
+        } else if (interactable instanceof Trophy trophy) {
+            out.writeByte(TROPHY);
+            trophy.write(out);
+        } else {
+            throw new IllegalArgumentException("Cannot save " + interactable);
+        }
+    }
+
+    /**
+     * Reads an interactable written with writeInteractable.
+     *
+     * @param mobs the monsters of the chunk the interactable is in, for lamps to light up
+     */
+    public static Interactable readInteractable(DataInputStream in, List<Monster> mobs)
+            throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case DOOR -> Door.read(in);
+            case KEY -> Key.read(in);
+            case LAMP -> Lamp.read(in, mobs);
+            case TROPHY -> Trophy.read(in);
+            default -> throw new IllegalArgumentException("Unknown interactable " + type);
+        };
+    }
+}
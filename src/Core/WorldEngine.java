@@ -6,22 +6,39 @@ import Core.DataStructures.Point;
 import Core.Entities.Player;
 import Core.Generators.DungeonGenerator;
 import Core.Generators.OutsideGenerator;
-import TileEngine.TERenderer;
-import TileEngine.TETile;
+import Core.Storage.ChunkStore;
 import TileEngine.Tileset;
-import Utils.SimplexNoise;
+import Utils.SaveableRandom;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
 
 /**
  * Responsible for creating the world, view mechanics (scrolling), and populating with the player
  * and monsters
  */
 public class WorldEngine implements Serializable {
-    private Chunk currentChunk;
+    /**
+     * The game the world belongs to.
+     */
+    private final transient GameSession session;
+    private final int stageWidth;
+    private final int stageHeight;
+
+    /**
+     * The chunk the player is in. Chunks are saved on their own, so only the key of the current
+     * chunk is saved with the engine.
+     */
+    private transient Chunk currentChunk;
+    private long currentChunkKey;
 
     /**
      * The seed used for world generation.
@@ -31,20 +48,62 @@ public class WorldEngine implements Serializable {
     /**
      * The random number generator used for procedural world generation.
      */
-    private Random worldEngineRng;
+    private SaveableRandom worldEngineRng;
+
+    /**
+     * The seed of the noise every outside chunk is made from, or null until the first outside
+     * chunk is made.
+     */
+    private Long noiseSeed;
+
+    /**
+     * The data of every chunk that has been made or loaded, keyed by ChunkData.getChunkKey.
+     * Every location in the world has at most one ChunkData.
+     */
+    private transient Map<Long, ChunkData> chunkRegistry = new HashMap<>();
+
+    /**
+     * Keys of the chunks that may have changed since the game was last saved.
+     */
+    private transient Set<Long> dirtyChunks = new HashSet<>();
+
+    /**
+     * Where the chunks of the world are saved. Null until the world is first saved or loaded.
+     */
+    private transient ChunkStore chunkStore;
+    /**
+     * Whether the chunks in the store belong to this world. A new world only takes over the
+     * directory once its first save has been committed, so until it is loaded from a save it
+     * never reads from the store, and keeps every chunk it has made in the registry instead.
+     */
+    private transient boolean isStoreLoaded;
+
+    /**
+     * Generates the chunks around the player in the background. Made when first needed.
+     */
+    private transient ChunkPrefetcher prefetcher;
+
+    /**
+     * The most recently visited chunks, keyed by ChunkData.getChunkKey, in least recently used
+     * order. Holds at most Constants.CHUNK_CACHE_SIZE chunks. Chunks that fall out of it are
+     * regenerated from their ChunkData when they are needed again.
+     */
+    private transient LinkedHashMap<Long, Chunk> chunkCache;
 
     /**
      * Constructor used to create the world engine.
      *
-     * @param worldGenSeed   The seed used for rng.
-     * @param stageWidth  The width of the screen.
-     * @param stageHeight The height of the screen.
+     * @param session      The game the world belongs to.
+     * @param worldGenSeed The seed used for rng.
+     * @param stageWidth   The width of a chunk.
+     * @param stageHeight  The height of a chunk.
      */
-    WorldEngine(long worldGenSeed, int stageWidth, int stageHeight, int viewPortWidth, int viewPortHeight) {
+    WorldEngine(GameSession session, long worldGenSeed, int stageWidth, int stageHeight) {
+        this.session = session;
         this.worldGenSeed = worldGenSeed;
-        this.worldEngineRng = new Random(worldGenSeed);
-        TERenderer.getInstance().initialize(viewPortWidth, viewPortHeight, stageWidth,
-                stageHeight, 0, Constants.GUI_HEIGHT);
+        this.worldEngineRng = new SaveableRandom(worldGenSeed);
+        this.stageWidth = stageWidth;
+        this.stageHeight = stageHeight;
     }
 
     /**
@@ -54,15 +113,9 @@ public class WorldEngine implements Serializable {
      */
     public Chunk createDungeon(int roomTries, Point chunkLocation) {
         long floorSeed = worldEngineRng.nextInt();
-        Map<String, TETile> tileMap = Map.ofEntries(
-                new AbstractMap.SimpleEntry<>("floor", Tileset.FLOOR),
-                new AbstractMap.SimpleEntry<>("wall", Tileset.WALL),
-                new AbstractMap.SimpleEntry<>("base", Tileset.NOTHING)
-        );
-        return new DungeonGenerator(roomTries,
-                TERenderer.getInstance().getStageWidth(),
-                TERenderer.getInstance().getStageHeight(), new ChunkData(floorSeed,
-                tileMap, ChunkData.ChunkType.DUNGEON, chunkLocation)).generate();
+        return new DungeonGenerator(session, roomTries, stageWidth, stageHeight,
+                register(new ChunkData(floorSeed, ChunkData.ChunkType.DUNGEON.getTileMap(),
+                        ChunkData.ChunkType.DUNGEON, chunkLocation))).generate();
     }
 
     /**
@@ -72,124 +125,304 @@ public class WorldEngine implements Serializable {
      */
     public Chunk createDungeon(int roomTries, Point chunkLocation, long floorSeed,
                                ChunkData data) {
-        Map<String, TETile> tileMap = Map.ofEntries(
-                new AbstractMap.SimpleEntry<>("floor", Tileset.FLOOR),
-                new AbstractMap.SimpleEntry<>("wall", Tileset.WALL),
-                new AbstractMap.SimpleEntry<>("base", Tileset.NOTHING)
-        );
-        return new DungeonGenerator(roomTries,
-                TERenderer.getInstance().getStageWidth(),
-                TERenderer.getInstance().getStageHeight(), data).generate();
+        return new DungeonGenerator(session, roomTries, stageWidth, stageHeight, data)
+                .generate();
     }
 
     /**
      * Creates a floor.
      */
     public Chunk createOutside(Point chunkLocation, ChunkData data) {
-        return new OutsideGenerator(TERenderer.getInstance().getStageWidth(),
-                TERenderer.getInstance().getStageHeight(),
-                data).generate();
+        return new OutsideGenerator(session, stageWidth, stageHeight, data).generate();
     }
 
     public Chunk createOutside(Point chunkLocation) {
-        long floorSeed;
-        if(SimplexNoise.seed != null) {
-            floorSeed = SimplexNoise.seed;
-        } else {
-            floorSeed = worldEngineRng.nextInt();
-        }
-
-        Map<String, TETile> tileMap = Map.ofEntries(
-                new AbstractMap.SimpleEntry<>("deep ocean", Tileset.DEEP_OCEAN),
-                new AbstractMap.SimpleEntry<>("ocean", Tileset.OCEAN),
-                new AbstractMap.SimpleEntry<>("sea", Tileset.SEA),
-                new AbstractMap.SimpleEntry<>("beach", Tileset.BEACH),
-                new AbstractMap.SimpleEntry<>("plains", Tileset.PLAINS),
-                new AbstractMap.SimpleEntry<>("forest", Tileset.FOREST),
-                new AbstractMap.SimpleEntry<>("deep forest", Tileset.DEEP_FOREST),
-                new AbstractMap.SimpleEntry<>("hills", Tileset.HILLS),
-                new AbstractMap.SimpleEntry<>("cliffs", Tileset.CLIFFS),
-                new AbstractMap.SimpleEntry<>("mountains", Tileset.MOUNTAINS),
-                new AbstractMap.SimpleEntry<>("high mountains", Tileset.HIGH_MOUNTAINS),
-                new AbstractMap.SimpleEntry<>("icy mountains", Tileset.ICY_MOUNTAINS),
-                new AbstractMap.SimpleEntry<>("ice", Tileset.ICE)
-        );
-        return createOutside(chunkLocation, new ChunkData(floorSeed, tileMap,
+        return createOutside(chunkLocation, newOutsideChunkData(chunkLocation));
+    }
+
+    /**
+     * Makes and registers the data for an outside chunk that has never been generated. Every outside chunk
+     * shares the seed of the noise, which is picked the first time one is made. This has to be
+     * called from the game thread, since it uses the world's random number generator.
+     */
+    private ChunkData newOutsideChunkData(Point chunkLocation) {
+        if (noiseSeed == null) {
+            noiseSeed = (long) worldEngineRng.nextInt();
+        }
+        long floorSeed = noiseSeed;
+
+        return register(new ChunkData(floorSeed, ChunkData.ChunkType.OUTSIDE.getTileMap(),
                 ChunkData.ChunkType.OUTSIDE, chunkLocation));
     }
 
-    public Chunk getNextChunk(Point newChunkLocation, ChunkData data) {
-        if(data == null) {
-            return createOutside(newChunkLocation);
+    /**
+     * Adds the data of a new chunk to the registry.
+     *
+     * @return the given data
+     */
+    private ChunkData register(ChunkData data) {
+        chunkRegistry.put(data.getChunkKey(), data);
+        dirtyChunks.add(data.getChunkKey());
+        return data;
+    }
+
+    /**
+     * Gets the data of a chunk, loading it from the save if it is not in memory yet.
+     *
+     * @param chunkCenter the center of a chunk
+     * @return the data of the chunk, or null if it has never been made
+     */
+    public ChunkData getChunkData(Point chunkCenter) {
+        long key = ChunkData.keyOf(chunkCenter);
+        ChunkData data = chunkRegistry.get(key);
+        if (data == null && chunkStore != null && isStoreLoaded) {
+            data = chunkStore.load(key);
+            if (data != null) {
+                chunkRegistry.put(key, data);
+            }
         }
+        return data;
+    }
 
-        long seed = worldEngineRng.nextInt();
-        if(data.getChunkSeed() != null) {
-            seed = data.getChunkSeed();
+    /**
+     * Encodes every chunk that may have changed since the last snapshot, and starts tracking
+     * changes again from here. The chunk the player is in always counts as changed, since the
+     * player can still change it.
+     *
+     * @param directory the directory the region files are kept in
+     * @return the encoded chunks, keyed by ChunkData.getChunkKey
+     */
+    public Map<Long, byte[]> snapshotDirtyChunks(File directory) {
+        getChunkStore(directory);
+        Map<Long, byte[]> records = new HashMap<>();
+        for (long key : dirtyChunks) {
+            records.put(key, ChunkStore.encode(chunkRegistry.get(key)));
         }
+        dirtyChunks.clear();
+        dirtyChunks.add(currentChunkKey);
+        return records;
+    }
 
-        //Recreate previously generated chunks
-        if(data.getType() == ChunkData.ChunkType.DUNGEON) {
-            System.out.println("DUNGEEEEEEEEEEEEEEON REEEEEECREATION");
-            return createDungeon(100, newChunkLocation, seed, data);
+    /**
+     * Gets the store the chunks of the world are saved in. The store is not cleared here; a new
+     * world's first checkpoint does that once it is safely journaled, see isNewSave.
+     *
+     * @param directory the directory the region files are kept in
+     */
+    public ChunkStore getChunkStore(File directory) {
+        if (chunkStore == null) {
+            chunkStore = ChunkStore.open(directory);
+        }
+        return chunkStore;
+    }
+
+    /**
+     * @return whether the world has never been saved or loaded, so whatever is saved in the
+     *      directory belongs to another game and has to be replaced by its first save
+     */
+    public boolean isNewSave() {
+        return chunkStore == null;
+    }
+
+    /**
+     * Writes the state of the engine in the save format. The random number generator is saved
+     * as a seed that carries on its sequence exactly, so saving does not change the world.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        long rngSeed = worldEngineRng.getSeed();
+        out.writeLong(worldGenSeed);
+        out.writeLong(rngSeed);
+        out.writeBoolean(noiseSeed != null);
+        if (noiseSeed != null) {
+            out.writeLong(noiseSeed);
+        }
+        out.writeLong(currentChunkKey);
+    }
+
+    /**
+     * Reads the state of the engine written with write. The chunks still have to be loaded with
+     * loadChunks afterwards.
+     */
+    public void read(DataInputStream in) throws IOException {
+        worldGenSeed = in.readLong();
+        worldEngineRng = new SaveableRandom(in.readLong());
+        noiseSeed = in.readBoolean() ? in.readLong() : null;
+        currentChunkKey = in.readLong();
+    }
+
+    /**
+     * Rebuilds the chunk the player was in when the world was saved, after the engine itself has
+     * been loaded. Other chunks are loaded from the directory when they are needed.
+     *
+     * @param directory the directory the region files are kept in
+     */
+    public void loadChunks(File directory) {
+        chunkRegistry = new HashMap<>();
+        dirtyChunks = new HashSet<>();
+        chunkCache = null;
+        getPrefetcher().clear();
+        chunkStore = ChunkStore.open(directory);
+        isStoreLoaded = true;
+        ChunkData data = chunkStore.load(currentChunkKey);
+        if (data == null) {
+            throw new IllegalArgumentException("The save does not contain the current chunk.");
+        }
+        chunkRegistry.put(currentChunkKey, data);
+        setCurrentChunk(generateChunk(data.getChunkCenter(), data));
+        session.getPlayer().enter(currentChunk);
+    }
+
+    /**
+     * Gets the chunk at the given location. Recently visited chunks come from the cache, then
+     * prefetched chunks are used if they are ready, and only then is the chunk generated.
+     *
+     * @param newChunkLocation the center of the chunk
+     */
+    public Chunk getNextChunk(Point newChunkLocation) {
+        Chunk cached = getChunkCache().get(ChunkData.keyOf(newChunkLocation));
+        if (cached != null) {
+            return cached;
+        }
+        Chunk chunk = getPrefetcher().take(newChunkLocation);
+        if (chunk == null) {
+            ChunkData data = getChunkData(newChunkLocation);
+            chunk = data == null ? createOutside(newChunkLocation)
+                    : generateChunk(newChunkLocation, data);
+        }
+        chunk.placeEntities();
+        return chunk;
+    }
+
+    /**
+     * Recreates a previously generated chunk from its data. Only reads the data and leaves the
+     * entities to Chunk.placeEntities, so it is safe to call from a worker thread.
+     */
+    private Chunk generateChunk(Point newChunkLocation, ChunkData data) {
+        if (data.getType() == ChunkData.ChunkType.DUNGEON) {
+            return createDungeon(100, newChunkLocation, data.getChunkSeed(), data);
         } else {
-            System.out.println("OOOOOOOOOOOUTTTTTTTTTSIIIIIIIIIIIIIDE RECREATION");
             return createOutside(newChunkLocation, data);
         }
     }
 
+    /**
+     * Starts generating the chunks next to the current one if the player is within
+     * Constants.PREFETCH_DISTANCE tiles of the edge they share, so crossing into them does not
+     * have to wait for generation.
+     */
+    public void prefetchNearbyChunks() {
+        Point location = session.getPlayer().getCurrentLocation();
+        Point center = currentChunk.getChunkData().getChunkCenter();
+        int distance = Constants.PREFETCH_DISTANCE;
+        if (location.getY() >= currentChunk.getHeight() - 1 - distance) {
+            prefetch(center.add(0, Constants.STAGE_HEIGHT));
+        }
+        if (location.getY() <= distance) {
+            prefetch(center.add(0, -Constants.STAGE_HEIGHT));
+        }
+        if (location.getX() <= distance) {
+            prefetch(center.add(-Constants.STAGE_WIDTH, 0));
+        }
+        if (location.getX() >= currentChunk.getWidth() - 1 - distance) {
+            prefetch(center.add(Constants.STAGE_WIDTH, 0));
+        }
+    }
+
+    private void prefetch(Point chunkCenter) {
+        if (getChunkCache().containsKey(ChunkData.keyOf(chunkCenter))
+                || getPrefetcher().isPending(chunkCenter)) {
+            return;
+        }
+        //new data is made here, since the rng can only be used by the game thread
+        ChunkData data = getChunkData(chunkCenter);
+        ChunkData chunkData = data == null ? newOutsideChunkData(chunkCenter) : data;
+        getPrefetcher().prefetch(chunkCenter, () -> generateChunk(chunkCenter, chunkData));
+    }
+
+    private ChunkPrefetcher getPrefetcher() {
+        if (prefetcher == null) {
+            prefetcher = new ChunkPrefetcher(Constants.PREFETCH_THREADS);
+        }
+        return prefetcher;
+    }
+
+    private LinkedHashMap<Long, Chunk> getChunkCache() {
+        if (chunkCache == null) {
+            chunkCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                    if (size() > Math.max(1, Constants.CHUNK_CACHE_SIZE)) {
+                        eldest.getValue().unload();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            if (currentChunk != null) {
+                chunkCache.put(currentChunk.getChunkData().getChunkKey(), currentChunk);
+            }
+        }
+        return chunkCache;
+    }
+
+    /**
+     * Moves the player into the chunk next to the current one, if the tile they would land on
+     * can be walked on.
+     *
+     * @param direction the key of the direction the player is moving in
+     */
     public void tileNextChunk(char direction) {
-        if(direction == 'w') {
-            Chunk nextChunk = getNextChunk(currentChunk.getChunkData().getChunkCenter().add(0,
-                    Constants.STAGE_HEIGHT), getCurrentChunk().getChunkData().getNorthChunkData());
-            Point currPos = GameServices.getInstance().getPlayer().getCurrentLocation();
-            Point newPosInChunk = new Point(currPos.getX(), 0);
-            if(GameServices.getInstance().getPlayer().spawn(newPosInChunk, nextChunk)) {
-                currentChunk.getChunkData().setNorthChunkData(nextChunk.getChunkData());
-                nextChunk.getChunkData().setSouthChunkData(currentChunk.getChunkData());
-                currentChunk = nextChunk;
+        Point center = currentChunk.getChunkData().getChunkCenter();
+        Point currPos = session.getPlayer().getCurrentLocation();
+        Point nextCenter;
+        Point newPosInChunk;
+        switch (direction) {
+            case 'w' -> {
+                nextCenter = center.add(0, Constants.STAGE_HEIGHT);
+                newPosInChunk = new Point(currPos.getX(), 0);
             }
-        } else if (direction == 's') {
-            Chunk nextChunk = getNextChunk(currentChunk.getChunkData().getChunkCenter().add(0,
-                    -Constants.STAGE_HEIGHT), getCurrentChunk().getChunkData().getSouthChunkData());
-            Point currPos = GameServices.getInstance().getPlayer().getCurrentLocation();
-            Point newPosInChunk = new Point(currPos.getX(), Constants.STAGE_HEIGHT - 1);
-            if(GameServices.getInstance().getPlayer().spawn(newPosInChunk, nextChunk)) {
-                currentChunk.getChunkData().setSouthChunkData(nextChunk.getChunkData());
-                nextChunk.getChunkData().setNorthChunkData(currentChunk.getChunkData());
-                currentChunk = nextChunk;
+            case 's' -> {
+                nextCenter = center.add(0, -Constants.STAGE_HEIGHT);
+                newPosInChunk = new Point(currPos.getX(), Constants.STAGE_HEIGHT - 1);
             }
-        } else if (direction == 'a') {
-            Chunk nextChunk =
-                    getNextChunk(currentChunk.getChunkData().getChunkCenter().add(
-                            -Constants.STAGE_WIDTH,0), getCurrentChunk().getChunkData().getWestChunkData());
-            Point currPos = GameServices.getInstance().getPlayer().getCurrentLocation();
-            Point newPosInChunk = new Point(Constants.STAGE_WIDTH - 1 , currPos.getY());
-            if(GameServices.getInstance().getPlayer().spawn(newPosInChunk, nextChunk)) {
-                currentChunk.getChunkData().setWestChunkData(nextChunk.getChunkData());
-                nextChunk.getChunkData().setEastChunkData(currentChunk.getChunkData());
-                currentChunk = nextChunk;
+            case 'a' -> {
+                nextCenter = center.add(-Constants.STAGE_WIDTH, 0);
+                newPosInChunk = new Point(Constants.STAGE_WIDTH - 1, currPos.getY());
             }
-        } else if(direction =='d') {
-            Chunk nextChunk =
-                    getNextChunk(currentChunk.getChunkData().getChunkCenter().add(
-                            Constants.STAGE_WIDTH,0), getCurrentChunk().getChunkData().getEastChunkData());
-            Point currPos = GameServices.getInstance().getPlayer().getCurrentLocation();
-            Point newPosInChunk = new Point(0 , currPos.getY());
-            if(GameServices.getInstance().getPlayer().spawn(newPosInChunk, nextChunk)) {
-                currentChunk.getChunkData().setEastChunkData(nextChunk.getChunkData());
-                nextChunk.getChunkData().setWestChunkData(currentChunk.getChunkData());
-                currentChunk = nextChunk;
+            case 'd' -> {
+                nextCenter = center.add(Constants.STAGE_WIDTH, 0);
+                newPosInChunk = new Point(0, currPos.getY());
             }
+            default -> {
+                return;
+            }
+        }
+        Chunk nextChunk = getNextChunk(nextCenter);
+        if (session.getPlayer().spawn(newPosInChunk, nextChunk)) {
+            enterChunk(nextChunk);
+        } else {
+            getPrefetcher().offer(nextChunk);
         }
     }
 
+    /**
+     * Makes the given chunk the current one. Prefetched chunks that were next to the old chunk
+     * are dropped, and the chunks next to the new one are prefetched if the player is close to
+     * them.
+     */
+    private void enterChunk(Chunk nextChunk) {
+        currentChunk.clearProjectiles();
+        setCurrentChunk(nextChunk);
+        session.getRenderer().clearEffects();
+        getPrefetcher().clear();
+        prefetchNearbyChunks();
+    }
 
     /**
      * Creates a new player.
      */
     public void createPlayer() {
-        GameServices.getInstance().setPlayer(new Player(currentChunk, Tileset.AVATAR.copyOf(), 100, 100));
+        session.getServices().setPlayer(new Player(currentChunk, Tileset.AVATAR, 100, 100));
     }
 
     /**
@@ -206,7 +439,7 @@ public class WorldEngine implements Serializable {
      */
     public void setWorldEngineRng(long seed) {
         this.worldGenSeed = seed;
-        this.worldEngineRng = new Random(seed);
+        this.worldEngineRng = new SaveableRandom(seed);
     }
 
     public Chunk getCurrentChunk() {
@@ -214,6 +447,10 @@ public class WorldEngine implements Serializable {
     }
 
     public void setCurrentChunk(Chunk currentChunk) {
+        currentChunk.placeEntities();
         this.currentChunk = currentChunk;
+        this.currentChunkKey = currentChunk.getChunkData().getChunkKey();
+        dirtyChunks.add(currentChunkKey);
+        getChunkCache().put(currentChunkKey, currentChunk);
     }
 }
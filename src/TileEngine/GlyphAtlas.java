@@ -0,0 +1,107 @@
+package TileEngine;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Images of every tile appearance that has been drawn so far, kept in memory.
+ * <p>
+ * A tile is rasterized the first time its character is drawn with a given pair of colors, and
+ * the image is reused from then on, so drawing a tile is a copy of an image instead of laying out
+ * and anti-aliasing text. The shade of a tile is already part of its colors. Tiles with an image
+ * file are read once and scaled to the tile size.
+ */
+public class GlyphAtlas {
+    private final int tileSize;
+    private final Font font;
+    private final Map<Glyph, BufferedImage> images = new ConcurrentHashMap<>();
+    /**
+     * Images of tiles that have an image file, by path. Empty if the file cannot be read.
+     */
+    private final Map<String, Optional<BufferedImage>> pictures = new ConcurrentHashMap<>();
+
+    /**
+     * @param tileSize the width and height of a tile in pixels
+     * @param font     the font characters are drawn with
+     */
+    public GlyphAtlas(int tileSize, Font font) {
+        this.tileSize = tileSize;
+        this.font = font;
+    }
+
+    /**
+     * @return the image of the given tile, tileSize pixels wide and high. Tiles whose image file
+     *      cannot be read are drawn from their character instead. Safe to call from several
+     *      threads.
+     */
+    public BufferedImage getImage(TETile tile) {
+        if (tile.getFilepath() != null) {
+            Optional<BufferedImage> picture = pictures.computeIfAbsent(tile.getFilepath(),
+                    this::loadPicture);
+            if (picture.isPresent()) {
+                return picture.get();
+            }
+        }
+        return images.computeIfAbsent(Glyph.of(tile), this::rasterize);
+    }
+
+    /**
+     * @return the number of tile appearances in the atlas
+     */
+    public int size() {
+        return images.size();
+    }
+
+    private Optional<BufferedImage> loadPicture(String path) {
+        try {
+            BufferedImage picture = ImageIO.read(new File(path));
+            if (picture == null) {
+                return Optional.empty();
+            }
+            BufferedImage scaled = new BufferedImage(tileSize, tileSize,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            g.drawImage(picture, 0, 0, tileSize, tileSize, null);
+            g.dispose();
+            return Optional.of(scaled);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private BufferedImage rasterize(Glyph glyph) {
+        BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(new Color(glyph.backgroundColor(), true));
+        g.fillRect(0, 0, tileSize, tileSize);
+        g.setColor(new Color(glyph.textColor(), true));
+        g.setFont(font);
+        //center the character the same way StdDraw.text does
+        FontMetrics metrics = g.getFontMetrics();
+        String text = Character.toString(glyph.character());
+        int x = (tileSize - metrics.stringWidth(text)) / 2;
+        int y = tileSize / 2 + metrics.getDescent();
+        g.drawString(text, x, y);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Everything that changes how a tile looks.
+     */
+    private record Glyph(char character, int textColor, int backgroundColor) {
+        static Glyph of(TETile tile) {
+            return new Glyph(tile.character(), tile.getTextColor().getRGB(),
+                    tile.getBackgroundColor().getRGB());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package TileEngine;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Draws tiles into images without StdDraw or a window, for map previews and snapshot tests.
+ * <p>
+ * Tiles look the same as they do on the screen, but the whole array is drawn, not just the part
+ * around the player. Each tile is copied out of a GlyphAtlas, so an image is mostly array copies.
+ * A renderer can be used from several threads at once.
+ */
+public class OffscreenRenderer {
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    private final int tileSize;
+    private final GlyphAtlas glyphAtlas;
+
+    public OffscreenRenderer() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * @param tileSize the width and height of a tile in pixels
+     */
+    public OffscreenRenderer(int tileSize) {
+        this.tileSize = tileSize;
+        this.glyphAtlas = new GlyphAtlas(tileSize, new Font("Monaco", Font.BOLD, tileSize - 2));
+    }
+
+    /**
+     * Draws the given tiles. Like on the screen, tiles[0][0] is drawn in the bottom left corner.
+     *
+     * @param tiles the tiles to draw, such as Chunk.getFloorArray
+     * @return an image of tiles.length by tiles[0].length tiles
+     */
+    public BufferedImage render(TETile[][] tiles) {
+        int width = tiles.length;
+        int height = tiles[0].length;
+        int imageWidth = width * tileSize;
+        int imageHeight = height * tileSize;
+        BufferedImage image = new BufferedImage(imageWidth, imageHeight,
+                BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (tiles[x][y] == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                            + " is null.");
+                }
+                int[] tile = pixelsOf(tiles[x][y]);
+                //rows of an image go down, rows of tiles go up
+                int top = (height - 1 - y) * tileSize;
+                for (int row = 0; row < tileSize; row++) {
+                    System.arraycopy(tile, row * tileSize, pixels,
+                            (top + row) * imageWidth + x * tileSize, tileSize);
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Draws each array of tiles, in parallel.
+     *
+     * @return the images, in the same order as the arrays
+     */
+    public List<BufferedImage> renderAll(List<TETile[][]> worlds) {
+        return worlds.parallelStream().map(this::render).toList();
+    }
+
+    /**
+     * Draws the given tiles and encodes the image as a PNG.
+     */
+    public byte[] renderPng(TETile[][] tiles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(render(tiles), "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private int[] pixelsOf(TETile tile) {
+        BufferedImage image = glyphAtlas.getImage(tile);
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
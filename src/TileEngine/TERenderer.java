@@ -1,22 +1,37 @@
 package TileEngine;
 
+import Core.Chunk;
+import Core.Constants;
 import Core.DataStructures.Point;
 import Core.Entities.Interactable;
 import Core.Entities.Monster;
 import Core.Entities.Player;
-import Core.GameServices;
 import edu.princeton.cs.algs4.StdDraw;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for rendering tiles.
+ * <p>
+ * Frames are drawn on a render thread of their own. renderFrame only copies what the frame needs
+ * and hands it over, so the game never waits for drawing and never draws while holding a chunk.
+ * <p>
+ * The tiles are drawn into an image of the viewport that is kept between frames, by copying the
+ * image of each tile out of a GlyphAtlas. Only the tiles that changed are drawn into it, and the
+ * whole image is then copied onto the screen at once. When the viewport scrolls, the image is
+ * shifted by whole tiles, so only the row or column that comes into view has to be drawn.
  */
 public class TERenderer implements Serializable {
     private static final int TILE_SIZE = 16;
-    public static TERenderer instance;
+    private static final Font TILE_FONT = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
     private int viewportWidth;
     private int viewportHeight;
     private int stageWidth;
@@ -25,19 +40,58 @@ public class TERenderer implements Serializable {
     private int yOffset;
     private boolean isOn = true;
 
-    private TERenderer(boolean isOn) {
-        this.isOn = isOn;
-    }
+    /**
+     * The tiles that are on the screen right now, indexed like the array given to renderTiles.
+     * Null when the screen has to be drawn from scratch.
+     */
+    private transient TETile[][] drawnTiles;
+    /**
+     * The part of the chunk that is in the viewport, reused every frame.
+     */
+    private transient TETile[][] viewPortArray;
+    /**
+     * The tile of the chunk in the bottom left corner of the viewport when it was last drawn.
+     */
+    private transient int drawnOriginX = -1;
+    private transient int drawnOriginY = -1;
+    private transient GlyphAtlas glyphAtlas;
+    /**
+     * The tiles that are on the screen right now, as an image that is copied onto the screen.
+     */
+    private transient BufferedImage tileImage;
+    private transient Graphics2D tileGraphics;
+    /**
+     * The graphics StdDraw draws its frames with, which it does not make public. Null if they
+     * cannot be reached, in which case tiles are drawn one by one with StdDraw.
+     */
+    private static final Field STDDRAW_GRAPHICS = stdDrawGraphics();
 
-    public static TERenderer getInstance() {
-        if (instance == null) {
-            instance = new TERenderer(true);
-        }
-        return instance;
-    }
+    private final transient Object frameLock = new Object();
+    /**
+     * The latest frame that has not been drawn yet, guarded by frameLock.
+     */
+    private transient Frame pendingFrame;
+    private transient boolean isDrawing;
+    /**
+     * The frame that was drawn last, for redrawing when an effect starts or ends.
+     */
+    private transient Frame drawnFrame;
+    /**
+     * Tiles drawn over the frame for a while, guarded by frameLock.
+     */
+    private final transient List<Effect> effects = new ArrayList<>();
+    /**
+     * Whether the render thread has been stopped from drawing until the next frame is asked for,
+     * guarded by frameLock.
+     */
+    private transient boolean isStopped;
+    private transient Thread renderThread;
 
-    public static void setInstance(TERenderer renderer) {
-        instance = renderer;
+    /**
+     * @param isOn whether anything is drawn. A renderer that is off never touches StdDraw.
+     */
+    public TERenderer(boolean isOn) {
+        this.isOn = isOn;
     }
 
     /**
@@ -61,8 +115,7 @@ public class TERenderer implements Serializable {
             this.xOffset = xOff;
             this.yOffset = yOff;
             StdDraw.setCanvasSize(this.viewportWidth * TILE_SIZE, this.viewportHeight * TILE_SIZE);
-            Font font = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
-            StdDraw.setFont(font);
+            StdDraw.setFont(TILE_FONT);
             StdDraw.setXscale(0, this.viewportWidth);
             StdDraw.setYscale(0, this.viewportHeight);
 
@@ -98,34 +151,313 @@ public class TERenderer implements Serializable {
      */
     public synchronized void renderTiles(TETile[][] world) {
         if (isOn) {
-            StdDraw.setFont(new Font("Monaco", Font.BOLD, TILE_SIZE - 2));
+            StdDraw.setFont(TILE_FONT);
             int numXTiles = world.length;
             int numYTiles = world[0].length;
-            StdDraw.clear(new Color(0, 0, 0));
+            Graphics2D screen = screenGraphics();
+            boolean isFullRedraw = drawnTiles == null || drawnTiles.length != numXTiles
+                    || drawnTiles[0].length != numYTiles || (screen != null && tileImage == null);
+            if (isFullRedraw) {
+                StdDraw.clear(new Color(0, 0, 0));
+                //the cleared screen already shows blank tiles, such as the ones hidden by fog of
+                //war, so they are never drawn
+                drawnTiles = new TETile[numXTiles][numYTiles];
+                for (TETile[] column : drawnTiles) {
+                    Arrays.fill(column, Tileset.NOTHING);
+                }
+                if (screen != null) {
+                    clearTileImage(numXTiles, numYTiles);
+                }
+            }
             for (int x = 0; x < numXTiles; x += 1) {
                 for (int y = 0; y < numYTiles; y += 1) {
                     if (world[x][y] == null) {
                         throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
                                 + " is null.");
                     }
-                    world[x][y].draw(x + xOffset, y + yOffset);
+                    //only draw the tiles that look different from what is on the screen
+                    if (!world[x][y].looksSameAs(drawnTiles[x][y])) {
+                        if (screen != null) {
+                            drawTile(world[x][y], x, y);
+                        } else {
+                            world[x][y].draw(x + xOffset, y + yOffset);
+                        }
+                        drawnTiles[x][y] = world[x][y];
+                    }
                 }
             }
+            if (screen != null) {
+                //rows of the screen go down, rows of tiles go up
+                screen.drawImage(tileImage, xOffset * TILE_SIZE,
+                        (viewportHeight - yOffset - numYTiles) * TILE_SIZE, null);
+            }
             StdDraw.show();
         }
     }
 
-    public synchronized void renderFrame(TETile[][] currentFloorArray,
-                                         List<Monster> mobs) {
+    /**
+     * Makes the image of the tiles the given size in tiles, all black.
+     */
+    private void clearTileImage(int numXTiles, int numYTiles) {
+        if (tileImage == null || tileImage.getWidth() != numXTiles * TILE_SIZE
+                || tileImage.getHeight() != numYTiles * TILE_SIZE) {
+            if (tileGraphics != null) {
+                tileGraphics.dispose();
+            }
+            tileImage = new BufferedImage(numXTiles * TILE_SIZE, numYTiles * TILE_SIZE,
+                    BufferedImage.TYPE_INT_RGB);
+            tileGraphics = tileImage.createGraphics();
+        }
+        tileGraphics.setColor(Color.BLACK);
+        tileGraphics.fillRect(0, 0, tileImage.getWidth(), tileImage.getHeight());
+    }
+
+    /**
+     * Draws a tile from the glyph atlas into the image of the tiles.
+     *
+     * @param x the x coordinate of the tile in the viewport
+     * @param y the y coordinate of the tile in the viewport
+     */
+    private void drawTile(TETile tile, int x, int y) {
+        if (glyphAtlas == null) {
+            glyphAtlas = new GlyphAtlas(TILE_SIZE, TILE_FONT);
+        }
+        int top = tileImage.getHeight() - (y + 1) * TILE_SIZE;
+        tileGraphics.drawImage(glyphAtlas.getImage(tile), x * TILE_SIZE, top, null);
+    }
+
+    /**
+     * @return the graphics of the frame StdDraw is drawing, or null if they cannot be reached
+     */
+    private static Graphics2D screenGraphics() {
+        if (STDDRAW_GRAPHICS == null) {
+            return null;
+        }
+        try {
+            return (Graphics2D) STDDRAW_GRAPHICS.get(null);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field stdDrawGraphics() {
+        try {
+            Field field = StdDraw.class.getDeclaredField("offscreen");
+            field.setAccessible(true);
+            return Graphics2D.class.isAssignableFrom(field.getType()) ? field : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Makes the next frame redraw every tile, for when something else has drawn over the screen.
+     */
+    public synchronized void invalidate() {
+        drawnTiles = null;
+    }
+
+    /**
+     * Asks for a frame of the given chunk to be drawn, hiding what the player has not seen if the
+     * chunk has fog of war.
+     */
+    public void renderFrame(Chunk chunk) {
         if (isOn) {
-            TETile[][] viewPort = centerViewPort(currentFloorArray,
-                    GameServices.getInstance().getPlayer().getCurrentLocation());
-            updateGUI(mobs, viewPort);
+            renderFrame(chunk.getSession().getPlayer(), chunk.getFloorArray(),
+                    chunk.getChunkData().getMobs(),
+                    chunk.hasFogOfWar() ? chunk.getPlayerVision().getExplored() : null);
+        }
+    }
+
+    /**
+     * Asks for a frame to be drawn. The state of the frame is copied on the calling thread and
+     * drawn later on the render thread, so this returns right away. If several frames are asked
+     * for before the render thread gets to them, only the latest is drawn.
+     *
+     * @param player            the player, for the GUI and to center the viewport on
+     * @param currentFloorArray the tiles of the chunk. Must not be changed afterwards; the arrays
+     *                          from Chunk.getFloorArray are copies and can be passed as they are.
+     * @param mobs              the monsters in the chunk
+     * @param explored          the tiles of the chunk the player has seen, set at
+     *                          x * height + y, or null to draw every tile
+     */
+    public void renderFrame(Player player, TETile[][] currentFloorArray, List<Monster> mobs,
+                            BitSet explored) {
+        if (isOn) {
+            List<TETile> inventory = new ArrayList<>();
+            for (Interactable i : player.getInventory()) {
+                inventory.add(i.getTile());
+            }
+            Frame frame = new Frame(currentFloorArray, player.getCurrentLocation(),
+                    player.getHealth(), player.getMaxHealth(), player.getMana(),
+                    player.getMaxMana(), mobs.size(), inventory,
+                    explored == null ? null : (BitSet) explored.clone());
+            synchronized (frameLock) {
+                pendingFrame = frame;
+                isStopped = false;
+                if (renderThread == null) {
+                    renderThread = new Thread(this::renderLoop, "render");
+                    renderThread.setDaemon(true);
+                    renderThread.start();
+                }
+                frameLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Draws a tile over the given location of the current chunk for a while, such as to show
+     * that something was hit. The chunk itself is not changed, so this returns right away.
+     *
+     * @param location the location in the chunk
+     * @param tile     the tile to draw there
+     * @param millis   how long to draw it for
+     */
+    public void flash(Point location, TETile tile, long millis) {
+        if (isOn) {
+            synchronized (frameLock) {
+                if (isStopped) {
+                    return;
+                }
+                effects.add(new Effect(location, tile,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis)));
+                if (pendingFrame == null) {
+                    pendingFrame = drawnFrame;
+                }
+                frameLock.notifyAll();
+            }
         }
     }
 
+    /**
+     * Stops drawing every effect, for when the player leaves the chunk they were in.
+     */
+    public void clearEffects() {
+        synchronized (frameLock) {
+            effects.clear();
+        }
+    }
+
+    /**
+     * Draws the frames that were asked for, then stops the render thread from drawing anything
+     * else until the next frame is asked for, for before something else draws on the screen.
+     * Effects that are still running are dropped, so they do not redraw the last frame when
+     * they end.
+     */
+    public void stop() {
+        synchronized (frameLock) {
+            awaitFrames();
+            effects.clear();
+            isStopped = true;
+        }
+    }
+
+    /**
+     * Waits until every frame that was asked for has been drawn. Effects that are still running
+     * can draw the last frame again after this returns; use stop to keep the screen to yourself.
+     */
+    public void awaitFrames() {
+        synchronized (frameLock) {
+            while (pendingFrame != null || isDrawing) {
+                try {
+                    frameLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the latest frame whenever there is one, at most Constants.MAX_FRAMES_PER_SECOND
+     * times a second.
+     */
+    private void renderLoop() {
+        long lastFrame = 0;
+        while (true) {
+            Frame frame;
+            synchronized (frameLock) {
+                while (pendingFrame == null) {
+                    try {
+                        long nextExpiry = nextEffectExpiry();
+                        if (nextExpiry == Long.MAX_VALUE || isStopped) {
+                            frameLock.wait();
+                        } else if (nextExpiry <= System.nanoTime()) {
+                            //draw the last frame again without the effects that have ended
+                            effects.removeIf(effect -> effect.expiresAt() <= System.nanoTime());
+                            pendingFrame = drawnFrame;
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(frameLock,
+                                    nextExpiry - System.nanoTime());
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                frame = pendingFrame;
+                pendingFrame = null;
+                isDrawing = true;
+            }
+            try {
+                long wait = lastFrame + TimeUnit.SECONDS.toNanos(1)
+                        / Math.max(1, Constants.MAX_FRAMES_PER_SECOND) - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (frameLock) {
+                //take any frame that came in while waiting instead
+                if (pendingFrame != null) {
+                    frame = pendingFrame;
+                    pendingFrame = null;
+                }
+            }
+            lastFrame = System.nanoTime();
+            try {
+                drawFrame(frame);
+            } finally {
+                synchronized (frameLock) {
+                    isDrawing = false;
+                    frameLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private long nextEffectExpiry() {
+        long next = Long.MAX_VALUE;
+        for (Effect effect : effects) {
+            next = Math.min(next, effect.expiresAt());
+        }
+        return next;
+    }
+
+    private synchronized void drawFrame(Frame frame) {
+        List<Effect> activeEffects;
+        synchronized (frameLock) {
+            long now = System.nanoTime();
+            effects.removeIf(effect -> effect.expiresAt() <= now);
+            activeEffects = new ArrayList<>(effects);
+            drawnFrame = frame;
+        }
+        TETile[][] viewPort = centerViewPort(frame.floorArray(), frame.playerLocation(),
+                activeEffects, frame.explored());
+        updateGUI(frame, viewPort);
+    }
+
     public synchronized TETile[][] centerViewPort(TETile[][] currentFloorArray, Point p) {
-        TETile[][] viewPortArray = new TETile[viewportWidth][viewportHeight - yOffset];
+        return centerViewPort(currentFloorArray, p, List.of(), null);
+    }
+
+    private TETile[][] centerViewPort(TETile[][] currentFloorArray, Point p,
+                                      List<Effect> activeEffects, BitSet explored) {
+        if (viewPortArray == null || viewPortArray.length != viewportWidth
+                || viewPortArray[0].length != viewportHeight - yOffset) {
+            viewPortArray = new TETile[viewportWidth][viewportHeight - yOffset];
+        }
         int x = p.getX() - (viewportWidth / 2);
         int y = p.getY() - (viewportHeight / 2);
 
@@ -144,94 +476,143 @@ public class TERenderer implements Serializable {
         for (int row = x; row < x + viewportWidth; row++) {
             System.arraycopy(currentFloorArray[row], y, viewPortArray[row - x], 0, viewportHeight - yOffset);
         }
-
+        //tiles the player has not seen are left blank
+        int floorHeight = currentFloorArray[0].length;
+        if (explored != null) {
+            for (int row = 0; row < viewPortArray.length; row++) {
+                for (int col = 0; col < viewPortArray[0].length; col++) {
+                    if (!explored.get((row + x) * floorHeight + col + y)) {
+                        viewPortArray[row][col] = Tileset.NOTHING;
+                    }
+                }
+            }
+        }
+        for (Effect effect : activeEffects) {
+            int effectX = effect.location().getX() - x;
+            int effectY = effect.location().getY() - y;
+            if (effectX >= 0 && effectY >= 0 && effectX < viewPortArray.length
+                    && effectY < viewPortArray[0].length && (explored == null
+                    || explored.get(effect.location().getX() * floorHeight
+                    + effect.location().getY()))) {
+                viewPortArray[effectX][effectY] = effect.tile();
+            }
+        }
+        if (x != drawnOriginX || y != drawnOriginY) {
+            //without the image to shift, every cell of the screen shows a different tile of the
+            //chunk after scrolling, so comparing cells would redraw nearly all of them anyway
+            if (!scrollTiles(x - drawnOriginX, y - drawnOriginY)) {
+                drawnTiles = null;
+            }
+            drawnOriginX = x;
+            drawnOriginY = y;
+        }
         renderTiles(viewPortArray);
         return viewPortArray;
     }
 
-    public synchronized void updateGUI(List<Monster> mobs, TETile[][] arr) {
-        if (isOn) {
-            StdDraw.setPenRadius(0.005);
-            StdDraw.setPenColor(Color.DARK_GRAY);
-            StdDraw.line(0, yOffset, viewportWidth, yOffset);
-            updateHealthBar();
-            updateManaBar();
-            updateEnemyCounter(mobs);
-            updateMouseTile(arr);
-            updateInventory();
-            StdDraw.show();
+    /**
+     * Shifts the image of the tiles, and the tiles it shows, for when the viewport has moved by
+     * the given number of tiles. The tiles that come into view are left to be drawn.
+     *
+     * @return whether the image could be shifted. If not, the tiles have to be drawn again.
+     */
+    private boolean scrollTiles(int dx, int dy) {
+        int numXTiles = viewPortArray.length;
+        int numYTiles = viewPortArray[0].length;
+        if (tileImage == null || drawnTiles == null || drawnTiles.length != numXTiles
+                || drawnTiles[0].length != numYTiles || Math.abs(dx) >= numXTiles
+                || Math.abs(dy) >= numYTiles || tileImage.getWidth() != numXTiles * TILE_SIZE
+                || tileImage.getHeight() != numYTiles * TILE_SIZE) {
+            return false;
+        }
+        //the tiles move the other way from the viewport. Rows of the image go down.
+        tileGraphics.copyArea(0, 0, tileImage.getWidth(), tileImage.getHeight(),
+                -dx * TILE_SIZE, dy * TILE_SIZE);
+        TETile[][] shifted = new TETile[numXTiles][numYTiles];
+        for (int x = 0; x < numXTiles; x++) {
+            int oldX = x + dx;
+            if (oldX < 0 || oldX >= numXTiles) {
+                continue;
+            }
+            int from = Math.max(0, dy);
+            int to = Math.min(numYTiles, numYTiles + dy);
+            System.arraycopy(drawnTiles[oldX], from, shifted[x], from - dy, to - from);
         }
+        //the cells left null came into view and are always drawn
+        drawnTiles = shifted;
+        return true;
+    }
 
+    private void updateGUI(Frame frame, TETile[][] arr) {
+        //the tiles are no longer cleared every frame, so clear the GUI strip by itself
+        StdDraw.setPenColor(Color.BLACK);
+        StdDraw.filledRectangle(viewportWidth / 2.0, yOffset / 2.0, viewportWidth / 2.0,
+                yOffset / 2.0);
+        StdDraw.setPenRadius(0.005);
+        StdDraw.setPenColor(Color.DARK_GRAY);
+        StdDraw.line(0, yOffset, viewportWidth, yOffset);
+        updateHealthBar(frame);
+        updateManaBar(frame);
+        updateEnemyCounter(frame);
+        updateMouseTile(arr);
+        updateInventory(frame);
+        StdDraw.show();
     }
 
-    public synchronized void updateHealthBar() {
-        if (isOn) {
-            Player player = GameServices.getInstance().getPlayer();
-            int x = 3;
-            int y = 4;
-            StdDraw.setPenColor(Color.RED);
-            StdDraw.textLeft(x, y, "Health");
-            StdDraw.setPenRadius(0.01);
-            double healthPercent = (double) player.getHealth() / player.getMaxHealth();
-            StdDraw.setPenColor(Color.WHITE);
-            StdDraw.line(x + 4, y, x + 14, y);
-            StdDraw.setPenColor(Color.RED);
-            StdDraw.line(x + 4, y, x + 4 + (healthPercent * 10), y);
-            StdDraw.textLeft(15 + x, y, player.getHealth() + " / " + player.getMaxHealth());
-        }
+    private void updateHealthBar(Frame frame) {
+        int x = 3;
+        int y = 4;
+        StdDraw.setPenColor(Color.RED);
+        StdDraw.textLeft(x, y, "Health");
+        StdDraw.setPenRadius(0.01);
+        double healthPercent = (double) frame.health() / frame.maxHealth();
+        StdDraw.setPenColor(Color.WHITE);
+        StdDraw.line(x + 4, y, x + 14, y);
+        StdDraw.setPenColor(Color.RED);
+        StdDraw.line(x + 4, y, x + 4 + (healthPercent * 10), y);
+        StdDraw.textLeft(15 + x, y, frame.health() + " / " + frame.maxHealth());
     }
 
-    public synchronized void updateManaBar() {
-        if (isOn) {
-            Player player = GameServices.getInstance().getPlayer();
-            int bottomY = 2;
-            int bottomX = 3;
-            StdDraw.setPenColor(Color.BLUE);
-            StdDraw.textLeft(bottomX, bottomY, "Mana");
-            StdDraw.setPenRadius(0.01);
-            double manaPercent = (double) player.getMana() / player.getMaxMana();
-            StdDraw.setPenColor(Color.WHITE);
-            StdDraw.line(bottomX + 4, bottomY, bottomX + 14, bottomY);
-            StdDraw.setPenColor(Color.BLUE);
-            StdDraw.line(bottomX + 4, bottomY, bottomX + 4 + (manaPercent * 10), bottomY);
-            StdDraw.textLeft(15 + bottomX, bottomY, player.getMana() + " / " + player.getMaxMana());
-        }
+    private void updateManaBar(Frame frame) {
+        int bottomY = 2;
+        int bottomX = 3;
+        StdDraw.setPenColor(Color.BLUE);
+        StdDraw.textLeft(bottomX, bottomY, "Mana");
+        StdDraw.setPenRadius(0.01);
+        double manaPercent = (double) frame.mana() / frame.maxMana();
+        StdDraw.setPenColor(Color.WHITE);
+        StdDraw.line(bottomX + 4, bottomY, bottomX + 14, bottomY);
+        StdDraw.setPenColor(Color.BLUE);
+        StdDraw.line(bottomX + 4, bottomY, bottomX + 4 + (manaPercent * 10), bottomY);
+        StdDraw.textLeft(15 + bottomX, bottomY, frame.mana() + " / " + frame.maxMana());
     }
 
-    public synchronized void updateEnemyCounter(List<Monster> mobs) {
-        if (isOn) {
-            int numMobs = mobs.size();
-            int x = 24;
-            int y = 3;
-            StdDraw.setPenColor(Color.WHITE);
-            StdDraw.textLeft(x, y, "Monsters left: " + numMobs);
-        }
+    private void updateEnemyCounter(Frame frame) {
+        int x = 24;
+        int y = 3;
+        StdDraw.setPenColor(Color.WHITE);
+        StdDraw.textLeft(x, y, "Monsters left: " + frame.monsterCount());
     }
 
-    public synchronized void updateMouseTile(TETile[][] arr) {
-        if (isOn) {
-            int x = (int) Math.round(StdDraw.mouseX());
-            int y = (int) Math.round(StdDraw.mouseY() - yOffset);
-            if (x >= arr.length || y >= arr[0].length || x < 0 || y < 0) {
-                return;
-            }
-            String tile = arr[x][y].description();
-            StdDraw.setPenColor(Color.WHITE);
-            StdDraw.textRight(viewportWidth - 2, 3, tile);
+    private void updateMouseTile(TETile[][] arr) {
+        int x = (int) Math.round(StdDraw.mouseX());
+        int y = (int) Math.round(StdDraw.mouseY() - yOffset);
+        if (x >= arr.length || y >= arr[0].length || x < 0 || y < 0) {
+            return;
         }
+        String tile = arr[x][y].description();
+        StdDraw.setPenColor(Color.WHITE);
+        StdDraw.textRight(viewportWidth - 2, 3, tile);
     }
 
-    public synchronized void updateInventory() {
-        if (isOn) {
-            Player player = GameServices.getInstance().getPlayer();
-            int x = 35;
-            int y = 4;
-            for (Interactable i : player.getInventory()) {
-                StdDraw.setPenColor(i.getTile().getTextColor());
-                StdDraw.setPenRadius(0.04);
-                StdDraw.text(x, y, String.valueOf(i.getTile().getCharacter()));
-                y -= 2;
-            }
+    private void updateInventory(Frame frame) {
+        int x = 35;
+        int y = 4;
+        for (TETile tile : frame.inventory()) {
+            StdDraw.setPenColor(tile.getTextColor());
+            StdDraw.setPenRadius(0.04);
+            StdDraw.text(x, y, String.valueOf(tile.getCharacter()));
+            y -= 2;
         }
     }
 
@@ -258,4 +639,18 @@ public class TERenderer implements Serializable {
     public int getStageHeight() {
         return stageHeight;
     }
+
+    /**
+     * Everything needed to draw a frame, copied from the game when the frame was asked for.
+     */
+    private record Frame(TETile[][] floorArray, Point playerLocation, int health, int maxHealth,
+                         int mana, int maxMana, int monsterCount, List<TETile> inventory,
+                         BitSet explored) {
+    }
+
+    /**
+     * A tile drawn over a location until expiresAt, in System.nanoTime.
+     */
+    private record Effect(Point location, TETile tile, long expiresAt) {
+    }
 }
@@ -6,6 +6,7 @@ import edu.princeton.cs.algs4.StdDraw;
 import java.awt.*;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.Random;
 
 /**
@@ -18,19 +19,31 @@ import java.util.Random;
  * provided cannot be found, draw will fallback to using the provided character and color
  * representation, so you are free to use image tiles on your own computer.
  *
- * The provided TETile is immutable, i.e. none of its instance variables can change. You are welcome
- * to make your TETile class mutable, if you prefer.
+ * TETiles are immutable and shared between every cell that looks the same. A lit tile is a
+ * separate instance made by lighten, and the lit versions of a tile are made once and reused.
  */
 
 public class TETile implements Serializable {
     private final char character;
-    private Color textColor;
-    private Color backgroundColor;
-    private Color baseTextColor;
+    private final Color textColor;
+    private final Color backgroundColor;
+    private final Color baseTextColor;
     private final String description;
     private final String filepath;
     private final Color baseBackgroundColor;
-    private int shade = 0;
+    private final int shade;
+    /**
+     * The unlit version of this tile, which is the tile itself if it is not lit.
+     */
+    private final TETile base;
+    /**
+     * Lit versions of this tile by shade, made when first needed. Only used on unlit tiles.
+     */
+    private transient TETile[] litVersions;
+    /**
+     * Id of the type of this tile in TileProperties. 0 until it has been looked up.
+     */
+    private transient int typeId;
 
     /**
      * Full constructor for TETile objects.
@@ -49,6 +62,8 @@ public class TETile implements Serializable {
         this.filepath = filepath;
         this.baseBackgroundColor = backgroundColor;
         this.baseTextColor = textColor;
+        this.shade = 0;
+        this.base = this;
     }
 
     /**
@@ -60,13 +75,23 @@ public class TETile implements Serializable {
      * @param description The description of the tile, shown in the GUI on hovering over the tile.
      */
     public TETile(char character, Color textColor, Color backgroundColor, String description) {
-        this.character = character;
+        this(character, textColor, backgroundColor, description, null);
+    }
+
+    /**
+     * Creates a lit version of the given unlit tile.
+     */
+    private TETile(TETile base, int shade, Color textColor, Color backgroundColor) {
+        this.character = base.character;
         this.textColor = textColor;
         this.backgroundColor = backgroundColor;
-        this.description = description;
-        this.filepath = null;
-        this.baseBackgroundColor = backgroundColor;
-        this.baseTextColor = textColor;
+        this.description = base.description;
+        this.filepath = base.filepath;
+        this.baseBackgroundColor = base.baseBackgroundColor;
+        this.baseTextColor = base.baseTextColor;
+        this.shade = shade;
+        this.base = base;
+        this.typeId = base.typeId;
     }
 
     /**
@@ -211,52 +236,72 @@ public class TETile implements Serializable {
         return this.description;
     }
 
-    public void reset() {
-        shade = 0;
-        backgroundColor = baseBackgroundColor;
-        textColor = baseTextColor;
-    }
-
+    /**
+     * @param distanceFromSource how lit the tile is, 0 being unlit
+     * @param lightingFactor     how much brighter each level of light makes the tile
+     * @return this tile lit by the given amount. Light does not add up: lighting a lit tile
+     *      gives the same tile as lighting its unlit version.
+     */
     public TETile lighten(int distanceFromSource, int lightingFactor) {
-        int amt = distanceFromSource * lightingFactor;
-        shade = distanceFromSource;
-        //background color
-        int r = backgroundColor.getRed() + amt;
-        int g = backgroundColor.getGreen() + amt;
-        int b = backgroundColor.getBlue() + amt;
-        if(r > 255) {
-            r = 255;
-        }
-        if(g > 255) {
-            g = 255;
-        }
-        if(b > 255) {
-            b = 255;
+        if (distanceFromSource == 0) {
+            return base;
         }
-        backgroundColor = new Color(r, g, b);
-        //foreground color
-        int fR = textColor.getRed() + amt;
-        int fG = textColor.getGreen() + amt;
-        int fB = textColor.getBlue() + amt;
-        if(fR > 255) {
-            fR = 255;
+        int amt = distanceFromSource * lightingFactor;
+        return new TETile(base, distanceFromSource, brighter(baseTextColor, amt),
+                brighter(baseBackgroundColor, amt));
+    }
+
+    /**
+     * @return this tile lit by the given amount, shared with every other tile of the same kind
+     *      lit by the same amount
+     */
+    public TETile lighten(int distanceFromSource) {
+        if (distanceFromSource < 0 || distanceFromSource > Byte.MAX_VALUE) {
+            return lighten(distanceFromSource, 7);
         }
-        if(fG > 255) {
-            fG = 255;
+        TETile[] lit = base.litVersions;
+        if (lit == null) {
+            lit = new TETile[Byte.MAX_VALUE + 1];
+            base.litVersions = lit;
         }
-        if(fB > 255) {
-            fB = 255;
+        if (lit[distanceFromSource] == null) {
+            lit[distanceFromSource] = lighten(distanceFromSource, 7);
         }
-        textColor = new Color(fR, fG, fB);
-        return this;
+        return lit[distanceFromSource];
     }
 
-    public TETile lighten(int distanceFromSource) {
-        return  lighten(distanceFromSource, 7);
+    private static Color brighter(Color color, int amt) {
+        return new Color(Math.min(255, color.getRed() + amt),
+                Math.min(255, color.getGreen() + amt), Math.min(255, color.getBlue() + amt));
+    }
+
+    /**
+     * @return the version of this tile without any lighting applied to it
+     */
+    public TETile unlit() {
+        return base;
+    }
+
+    /**
+     * Whether the given tile looks the same as this one when neither of them is lit.
+     */
+    boolean hasSameBase(TETile o) {
+        return character == o.character && description.equals(o.description)
+                && baseTextColor.equals(o.baseTextColor)
+                && baseBackgroundColor.equals(o.baseBackgroundColor)
+                && Objects.equals(filepath, o.filepath);
     }
 
-    public TETile copyOf() {
-        return new TETile(character, textColor, baseBackgroundColor, description, filepath);
+    /**
+     * Whether the given tile is drawn exactly like this one.
+     */
+    boolean looksSameAs(TETile o) {
+        if (o == this) {
+            return true;
+        }
+        return o != null && character == o.character && textColor.equals(o.textColor)
+                && backgroundColor.equals(o.backgroundColor)
+                && Objects.equals(filepath, o.filepath);
     }
 
     public int getShade() {
@@ -267,7 +312,25 @@ public class TETile implements Serializable {
         return textColor;
     }
 
+    public Color getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    String getFilepath() {
+        return filepath;
+    }
+
     public char getCharacter() {
         return character;
     }
+
+    /**
+     * @return the id of this tile's type, shared by all tiles with the same description
+     */
+    public int getTypeId() {
+        if (typeId == 0) {
+            typeId = TileProperties.idOf(description);
+        }
+        return typeId;
+    }
 }
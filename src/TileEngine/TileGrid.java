@@ -0,0 +1,155 @@
+package TileEngine;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact storage for the tiles of a chunk.
+ * <p>
+ * Instead of holding one TETile object per cell, every cell stores a short id into a palette of
+ * shared, unlit tile prototypes. The shade of every cell is kept in a separate byte layer, so
+ * lighting a cell never needs its own TETile instance. Lit versions of a prototype are created
+ * once per (prototype, shade) pair by TETile.lighten and shared between all cells that use them.
+ */
+public class TileGrid implements Serializable {
+    private final int width;
+    private final int height;
+
+    /**
+     * Palette id of every cell, indexed by x * height + y.
+     */
+    private final short[] ids;
+
+    /**
+     * Shade of every cell, indexed the same way as ids.
+     */
+    private final byte[] shades;
+
+    /**
+     * Shared unlit prototypes. The index of a prototype is its palette id.
+     */
+    private final List<TETile> palette = new ArrayList<>();
+
+    /**
+     * TileProperties flags of every palette entry, indexed by palette id. Rebuilt lazily.
+     */
+    private transient int[] paletteFlags;
+
+    public TileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.ids = new short[width * height];
+        this.shades = new byte[width * height];
+    }
+
+    /**
+     * Creates a grid holding the same tiles as the given 2d array.
+     *
+     * @param map the array to copy the tiles from
+     * @return the new grid
+     */
+    public static TileGrid of(TETile[][] map) {
+        TileGrid grid = new TileGrid(map.length, map[0].length);
+        for (int x = 0; x < map.length; x++) {
+            for (int y = 0; y < map[0].length; y++) {
+                grid.set(x, y, map[x][y]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Gets the tile at the given location. The returned tile is shared with every other cell that
+     * looks the same, so it must not be modified.
+     */
+    public TETile get(int x, int y) {
+        int index = index(x, y);
+        return shaded(ids[index], shades[index]);
+    }
+
+    /**
+     * Sets the given location to the given tile. Only the look of the tile is stored, so later
+     * changes to the tile object are not reflected in the grid.
+     */
+    public void set(int x, int y, TETile tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                    + " is null.");
+        }
+        int index = index(x, y);
+        ids[index] = paletteId(tile);
+        shades[index] = (byte) Math.max(0, Math.min(Byte.MAX_VALUE, tile.getShade()));
+    }
+
+    /**
+     * @return the TileProperties flags of the tile at the given location
+     */
+    public int getFlags(int x, int y) {
+        if (paletteFlags == null || paletteFlags.length != palette.size()) {
+            paletteFlags = new int[palette.size()];
+            for (int i = 0; i < paletteFlags.length; i++) {
+                paletteFlags[i] = TileProperties.flagsOf(palette.get(i));
+            }
+        }
+        return paletteFlags[ids[index(x, y)]];
+    }
+
+    public int getShade(int x, int y) {
+        return shades[index(x, y)];
+    }
+
+    /**
+     * Changes the shade of the given location without touching the tile.
+     */
+    public void setShade(int x, int y, int shade) {
+        shades[index(x, y)] = (byte) Math.max(0, Math.min(Byte.MAX_VALUE, shade));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return a 2d array view of the grid. The array is a copy, but the tiles in it are shared.
+     */
+    public TETile[][] toArray() {
+        TETile[][] map = new TETile[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map[x][y] = get(x, y);
+            }
+        }
+        return map;
+    }
+
+    private int index(int x, int y) {
+        return x * height + y;
+    }
+
+    /**
+     * Finds the palette id of the given tile, adding its unlit prototype to the palette if it
+     * has not been seen before. Palettes only hold a few dozen tiles, so a scan is enough.
+     */
+    private short paletteId(TETile tile) {
+        for (int i = 0; i < palette.size(); i++) {
+            TETile prototype = palette.get(i);
+            if (prototype == tile || prototype.hasSameBase(tile)) {
+                return (short) i;
+            }
+        }
+        if (palette.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many different tiles in one chunk");
+        }
+        palette.add(tile.unlit());
+        return (short) (palette.size() - 1);
+    }
+
+    private TETile shaded(short id, byte shade) {
+        return palette.get(id).lighten(shade);
+    }
+}
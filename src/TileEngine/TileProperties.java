@@ -0,0 +1,109 @@
+package TileEngine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of the properties of every type of tile.
+ * <p>
+ * Tiles are the same type when they have the same description, the same way TETile.equals
+ * compares them. Every type gets a numeric id the first time a tile of that type is made, and
+ * the properties of the type are stored as bit flags at that id. Checking a property is then an
+ * array lookup and a mask instead of a search through a list of tiles.
+ */
+public final class TileProperties {
+    /**
+     * Entities (the player and monsters) can walk on the tile.
+     */
+    public static final int WALKABLE = 1;
+    /**
+     * Monsters can plan paths through the tile.
+     */
+    public static final int PATHABLE = 1 << 1;
+    /**
+     * Player attacks can fly over the tile.
+     */
+    public static final int PROJECTILE_PASSABLE = 1 << 2;
+    /**
+     * The tile stops light and blocks fields of view.
+     */
+    public static final int BLOCKS_LIGHT = 1 << 3;
+    /**
+     * The tile is a wall.
+     */
+    public static final int WALL = 1 << 4;
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Flags of every tile type, indexed by type id. Id 0 is never handed out.
+     */
+    private static volatile int[] flags = new int[32];
+
+    /**
+     * All the tiles in the tileset, in the order their type ids are handed out.
+     */
+    private static final TETile[] TILESET = {Tileset.AVATAR, Tileset.ATTACKED_AVATAR,
+        Tileset.MONSTER, Tileset.ATTACKED_MONSTER, Tileset.FLOOR, Tileset.WALL, Tileset.NOTHING,
+        Tileset.DEEP_OCEAN, Tileset.OCEAN, Tileset.SEA, Tileset.BEACH, Tileset.PLAINS,
+        Tileset.FOREST, Tileset.DEEP_FOREST, Tileset.HILLS, Tileset.CLIFFS, Tileset.MOUNTAINS,
+        Tileset.HIGH_MOUNTAINS, Tileset.ICY_MOUNTAINS, Tileset.ICE, Tileset.TREE, Tileset.FLOWER,
+        Tileset.KEY, Tileset.LOCKED_DOOR, Tileset.UNLOCKED_DOOR, Tileset.LIGHT, Tileset.TROPHY,
+        Tileset.TEST_SQUARE};
+
+    static {
+        for (TETile tile : TILESET) {
+            idOf(tile.description());
+        }
+        Tileset.reachableEntityTiles.forEach(tile -> addFlags(tile, WALKABLE));
+        Tileset.reachablePathfindingTiles.forEach(tile -> addFlags(tile, PATHABLE));
+        Tileset.reachableAttackTiles.forEach(tile -> addFlags(tile, PROJECTILE_PASSABLE));
+        addFlags(Tileset.WALL, WALL | BLOCKS_LIGHT);
+        addFlags(Tileset.LOCKED_DOOR, BLOCKS_LIGHT);
+    }
+
+    private TileProperties() {
+    }
+
+    /**
+     * Gets the id of the tile type with the given description, creating one if needed.
+     *
+     * @param description the description of the tile
+     * @return the id of the tile type
+     */
+    static synchronized int idOf(String description) {
+        Integer id = ids.get(description);
+        if (id == null) {
+            id = ids.size() + 1;
+            ids.put(description, id);
+            if (id >= flags.length) {
+                flags = Arrays.copyOf(flags, flags.length * 2);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Adds the given flags to the type of the given tile.
+     */
+    static synchronized void addFlags(TETile tile, int flag) {
+        int[] updated = flags.clone();
+        updated[tile.getTypeId()] |= flag;
+        flags = updated;
+    }
+
+    /**
+     * @return all the flags of the given tile's type
+     */
+    public static int flagsOf(TETile tile) {
+        return flags[tile.getTypeId()];
+    }
+
+    /**
+     * Whether the given tile's type has all of the given flags.
+     */
+    public static boolean has(TETile tile, int flag) {
+        return (flags[tile.getTypeId()] & flag) == flag;
+    }
+}
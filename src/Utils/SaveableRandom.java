@@ -0,0 +1,42 @@
+package Utils;
+
+import java.util.Random;
+
+/**
+ * A Random whose state can be saved and restored exactly.
+ * <p>
+ * It runs the same linear congruential generator as java.util.Random, so it gives the same
+ * numbers for the same seed, but it keeps the state itself. getSeed returns a seed that makes a
+ * new generator carry on exactly where this one is, without drawing anything from it.
+ */
+public class SaveableRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    //set by the constructor of Random through setSeed, so it must not have an initializer
+    private long state;
+
+    public SaveableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * @return a seed that makes new SaveableRandom(seed) continue this generator's sequence
+     */
+    public synchronized long getSeed() {
+        return state ^ MULTIPLIER;
+    }
+}
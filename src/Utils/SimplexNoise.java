@@ -1,69 +1,91 @@
 package Utils;
 
-import Core.Entities.Interactable;
-
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.stream.IntStream;
 
-public class SimplexNoise {
-    /** Seed for the simplex noise generator*/
-    public static Long seed = null;
-    private static final Grad[] grad3 = {new Grad(1,1,0),new Grad(-1,1,0),new Grad(1,-1,0),new Grad(-1,-1,0),
-            new Grad(1,0,1),new Grad(-1,0,1),new Grad(1,0,-1),new Grad(-1,0,-1),
-            new Grad(0,1,1),new Grad(0,-1,1),new Grad(0,1,-1),new Grad(0,-1,-1)};
-    private static final short[] p = {151,160,137,91,90,15,
-            131,13,201,95,96,53,194,233,7,225,140,36,103,30,69,142,8,99,37,240,21,10,23,
-            190, 6,148,247,120,234,75,0,26,197,62,94,252,219,203,117,35,11,32,57,177,33,
-            88,237,149,56,87,174,20,125,136,171,168, 68,175,74,165,71,134,139,48,27,166,
-            77,146,158,231,83,111,229,122,60,211,133,230,220,105,92,41,55,46,245,40,244,
-            102,143,54, 65,25,63,161, 1,216,80,73,209,76,132,187,208, 89,18,169,200,196,
-            135,130,116,188,159,86,164,100,109,198,173,186, 3,64,52,217,226,250,124,123,
-            5,202,38,147,118,126,255,82,85,212,207,206,59,227,47,16,58,17,182,189,28,42,
-            223,183,170,213,119,248,152, 2,44,154,163, 70,221,153,101,155,167, 43,172,9,
-            129,22,39,253, 19,98,108,110,79,113,224,232,178,185, 112,104,218,246,97,228,
-            251,34,242,193,238,210,144,12,191,179,162,241, 81,51,145,235,249,14,239,107,
-            49,192,214, 31,181,199,106,157,184, 84,204,176,115,121,50,45,127, 4,150,254,
-            138,236,205,93,222,114,67,29,24,72,243,141,128,195,78,66,215,61,156,180};
-    // To remove the need for index wrapping, double the permutation table length
-    private static final short[] perm = new short[512];
-    private static final short[] permMod12 = new short[512];
-    static {
-        for(int i=0; i<512; i++)
-        {
-            perm[i]=p[i & 255];
-            permMod12[i] = (short)(perm[i] % 12);
+/**
+ * Simplex noise with its own permutation tables, made from a seed.
+ * <p>
+ * Instances never change after they are made, so any number of threads can sample the same noise
+ * at once. Use forSeed to get one, which reuses the noise of the seeds that were used last.
+ */
+public final class SimplexNoise {
+    /**
+     * How many of the most recently used seeds keep their noise. Every outside chunk of a world
+     * uses the same seed, so this covers every game that is running without keeping the noise of
+     * finished games forever.
+     */
+    private static final int CACHE_SIZE = 16;
+    private static final Map<Long, SimplexNoise> CACHE = new LinkedHashMap<>(CACHE_SIZE, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SimplexNoise> eldest) {
+            return size() > CACHE_SIZE;
         }
-    }
+    };
 
-    // Skewing and unskewing factors for 2 dimensions
-    private static final double F2 = 0.5*(Math.sqrt(3.0)-1.0);
-    private static final double G2 = (3.0-Math.sqrt(3.0))/6.0;
+    // x and y of the 12 gradients of 3D simplex noise, of which only x and y are used in 2D
+    private static final double[] GRAD_X = {1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0};
+    private static final double[] GRAD_Y = {1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1};
 
-    // This method is a *lot* faster than using (int)Math.floor(x)
-    private static int fastFloor(double x) {
-        int xi = (int)x;
-        return x<xi ? xi-1 : xi;
-    }
+    /**
+     * Regions with at least this many cells are sampled on several threads.
+     */
+    private static final int PARALLEL_CELLS = 4096;
 
-    private static double dot(Grad g, double x, double y) {
-        return g.x*x + g.y*y; }
+    private final long seed;
+    // To remove the need for index wrapping, double the permutation table length
+    private final short[] perm = new short[512];
+    private final short[] permMod12 = new short[512];
 
-    public static void setSeed(long seed) {
-        if (SimplexNoise.seed != null && SimplexNoise.seed == seed) {
-            return;
-        }
-        SimplexNoise.seed = seed;
+    private SimplexNoise(long seed) {
+        this.seed = seed;
         Random r = new Random(seed);
+        short[] p = new short[256];
         for (int i = 0; i < p.length; i++) {
             p[i] = (short) r.nextInt(255);
         }
-
         for (int i = 0; i < 512; i++) {
             perm[i] = p[i & 255];
             permMod12[i] = (short) (perm[i] % 12);
         }
     }
 
-    public static double sample(double x, double y, int numOctaves) {
+    /**
+     * @return the noise made from the given seed
+     */
+    public static SimplexNoise forSeed(long seed) {
+        synchronized (CACHE) {
+            SimplexNoise noise = CACHE.get(seed);
+            if (noise != null) {
+                return noise;
+            }
+        }
+        //made outside the lock, so other threads are not held up by the tables being built
+        SimplexNoise noise = new SimplexNoise(seed);
+        synchronized (CACHE) {
+            SimplexNoise other = CACHE.putIfAbsent(seed, noise);
+            return other != null ? other : noise;
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Skewing and unskewing factors for 2 dimensions
+    private static final double F2 = 0.5*(Math.sqrt(3.0)-1.0);
+    private static final double G2 = (3.0-Math.sqrt(3.0))/6.0;
+
+    // This method is a *lot* faster than using (int)Math.floor(x)
+    private static int fastFloor(double x) {
+        int xi = (int)x;
+        return x<xi ? xi-1 : xi;
+    }
+
+    public double sample(double x, double y, int numOctaves) {
         double result = 0;
         double amplitude = 1;
         double frequency = 0.005;
@@ -78,8 +100,48 @@ public class SimplexNoise {
         return result;
     }
 
+    /**
+     * Samples a rectangle of the noise at once. Gives exactly the same values as calling sample
+     * for each cell, but shares the work of each column between its cells, and samples large
+     * rectangles on several threads.
+     *
+     * @param x          the x of the bottom left cell
+     * @param y          the y of the bottom left cell
+     * @param width      the number of columns
+     * @param height     the number of rows
+     * @param numOctaves the number of octaves, as in sample
+     * @param out        where the samples are put, the cell (x + i, y + j) at i * height + j
+     */
+    public void sampleRegion(int x, int y, int width, int height, int numOctaves, double[] out) {
+        if (out.length < width * height) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " region does not fit in "
+                    + out.length + " samples.");
+        }
+        IntStream columns = IntStream.range(0, width);
+        if (width * height >= PARALLEL_CELLS) {
+            columns = columns.parallel();
+        }
+        columns.forEach(i -> sampleColumn(x + i, y, height, numOctaves, out, i * height));
+    }
+
+    private void sampleColumn(int x, int y, int height, int numOctaves, double[] out, int offset) {
+        for (int j = 0; j < height; j++) {
+            out[offset + j] = 0;
+        }
+        double amplitude = 1;
+        double frequency = 0.005;
+        for (int octave = 0; octave < numOctaves; octave++) {
+            double xin = x * frequency;
+            for (int j = 0; j < height; j++) {
+                out[offset + j] += amplitude * noise(xin, (y + j) * frequency);
+            }
+            amplitude *= 0.5;
+            frequency *= 2.0;
+        }
+    }
+
     // 2D simplex noise
-    public static double noise(double xin, double yin) {
+    public double noise(double xin, double yin) {
         double n0, n1, n2; // Noise contributions from the three corners
         // Skew the input space to determine which simplex cell we're in
         double s = (xin+yin)*F2; // Hairy factor for 2D
@@ -113,36 +175,22 @@ public class SimplexNoise {
         if(t0<0) n0 = 0.0;
         else {
             t0 *= t0;
-            n0 = t0 * t0 * dot(grad3[gi0], x0, y0);  // (x,y) of grad3 used for 2D gradient
+            n0 = t0 * t0 * (GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0);
         }
         double t1 = 0.5 - x1*x1-y1*y1;
         if(t1<0) n1 = 0.0;
         else {
             t1 *= t1;
-            n1 = t1 * t1 * dot(grad3[gi1], x1, y1);
+            n1 = t1 * t1 * (GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1);
         }
         double t2 = 0.5 - x2*x2-y2*y2;
         if(t2<0) n2 = 0.0;
         else {
             t2 *= t2;
-            n2 = t2 * t2 * dot(grad3[gi2], x2, y2);
+            n2 = t2 * t2 * (GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2);
         }
         // Add contributions from each corner to get the final noise value.
         // The result is scaled to return values in the interval [-1,1].
         return 70.0 * (n0 + n1 + n2);
     }
-
-    // Inner class to speed upp gradient computations
-    // (array access is a lot slower than member access)
-    private static class Grad
-    {
-        double x, y, z, w;
-
-        Grad(double x, double y, double z)
-        {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-        }
-    }
-}
\ No newline at end of file
+}